@@ -0,0 +1,144 @@
+import java.util.*;
+import java.util.function.IntSupplier;
+
+/**
+ * Benchmarks for graph construction, shortest paths, adjacency micro-ops and
+ * minimum spanning trees on generated graphs.
+ * Every benchmark is run for a number of warmup iterations, whose results are
+ * thrown away so the JIT can compile the hot code, and then for a number of
+ * measured iterations of a fixed duration each. The time per operation is
+ * reported as the mean and standard deviation over the measured iterations.
+ * Results of every operation are folded into a sink so the JIT cannot drop the work.
+ *
+ * Usage: java GraphBenchmark [--graph random|grid|scalefree] [--vertices n]
+ *   [--degree d] [--max-weight w] [--seed s] [--warmup k] [--iterations k]
+ *   [--millis t] [--bench name,name,...]
+ * Benchmark names: construct, shortestPath, adjacentVertices, edgeCost, kruskalMST,
+ *   primMST
+ */
+public class GraphBenchmark {
+    // keeps results alive so the work that produced them is not optimized away
+    static volatile long sink;
+
+    private final Map<String, String> options = new HashMap<>();
+
+    private GraphBenchmark(String[] args){
+        options.put("graph", "random");
+        options.put("vertices", "100000");
+        options.put("degree", "4");
+        options.put("max-weight", "100");
+        options.put("seed", "42");
+        options.put("warmup", "3");
+        options.put("iterations", "5");
+        options.put("millis", "1000");
+        options.put("bench", "construct,shortestPath,adjacentVertices,edgeCost,kruskalMST,primMST");
+        for(int i = 0; i + 1 < args.length; i += 2){
+            if(!args[i].startsWith("--") || !options.containsKey(args[i].substring(2)))
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    public static void main(String[] args) {
+        GraphBenchmark b;
+        try {
+            b = new GraphBenchmark(args);
+        } catch(IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        b.run();
+    }
+
+    private int option(String name){
+        return Integer.parseInt(options.get(name));
+    }
+
+    private void run(){
+        long seed = Long.parseLong(options.get("seed"));
+        GraphGenerators.Generated gen = GraphGenerators.byName(options.get("graph"),
+                option("vertices"), option("degree"), option("max-weight"), seed);
+        System.out.println("graph=" + options.get("graph") + " vertices=" + gen.vertices.size()
+                + " edges=" + gen.edges.size() + " seed=" + seed);
+        MyGraph g = new MyGraph(gen.vertices, gen.edges);
+        // query endpoints are drawn from their own stream of the same seed
+        Random r = new Random(seed + 1);
+        int queries = 1024;
+        Vertex[] from = new Vertex[queries];
+        Vertex[] to = new Vertex[queries];
+        for(int i = 0; i < queries; i++){
+            from[i] = gen.vertices.get(r.nextInt(gen.vertices.size()));
+            to[i] = gen.vertices.get(r.nextInt(gen.vertices.size()));
+        }
+        int[] next = new int[1];
+
+        for(String name: options.get("bench").split(",")){
+            switch(name){
+                case "construct":
+                    measure(name, () -> new MyGraph(gen.vertices, gen.edges).edges().size());
+                    break;
+                case "shortestPath":
+                    measure(name, () -> {
+                        int i = next[0]++ & (queries - 1);
+                        Path p = g.shortestPath(from[i], to[i]);
+                        return p == null ? -1 : p.cost;
+                    });
+                    break;
+                case "adjacentVertices":
+                    measure(name, () -> g.adjacentVertices(from[next[0]++ & (queries - 1)]).size());
+                    break;
+                case "edgeCost":
+                    measure(name, () -> {
+                        Edge e = gen.edges.get(next[0]++ % gen.edges.size());
+                        return g.edgeCost(e.getSource(), e.getDestination());
+                    });
+                    break;
+                case "kruskalMST":
+                    MSTGraph mst = new MSTGraph(gen.vertices, gen.edges);
+                    measure(name, () -> mst.kruskalMST().size());
+                    break;
+                case "primMST":
+                    MSTGraph dense = new MSTGraph(gen.vertices, gen.edges);
+                    measure(name, () -> dense.primMST().size());
+                    break;
+                default:
+                    System.err.println("Unknown benchmark " + name);
+            }
+        }
+    }
+
+    // run op for the warmup and measured iterations and print the time per operation
+    private void measure(String name, IntSupplier op){
+        long millis = option("millis");
+        for(int i = 0; i < option("warmup"); i++)
+            iteration(op, millis);
+        int iterations = option("iterations");
+        double[] nanosPerOp = new double[iterations];
+        for(int i = 0; i < iterations; i++)
+            nanosPerOp[i] = iteration(op, millis);
+        double mean = 0;
+        for(double x: nanosPerOp)
+            mean += x / iterations;
+        double variance = 0;
+        for(double x: nanosPerOp)
+            variance += (x - mean) * (x - mean) / Math.max(1, iterations - 1);
+        System.out.printf("%-18s %14.1f ns/op  +- %.1f  (%d iterations)%n", name, mean, Math.sqrt(variance), iterations);
+    }
+
+    // call op until millis have passed, at least once, and return the mean nanoseconds per call
+    private static double iteration(IntSupplier op, long millis){
+        long sum = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long deadline = start + millis * 1000000L;
+        long now;
+        do{
+            sum += op.getAsInt();
+            ops++;
+            now = System.nanoTime();
+        }while(now < deadline);
+        sink += sum;
+        return (double)(now - start) / ops;
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.*;
+
+/**
+ * Synthetic graphs for benchmarks. Every generator is driven by a seed, so the
+ * same arguments always give the same vertices, edges and weights.
+ * Vertices are labelled v0, v1, ... and weights are drawn uniformly from
+ * [1, maxWeight].
+ */
+public class GraphGenerators {
+    /**
+     * A generated graph, ready to pass to a graph constructor
+     */
+    public static class Generated {
+        public final List<Vertex> vertices;
+        public final List<Edge> edges;
+
+        Generated(List<Vertex> vertices, List<Edge> edges){
+            this.vertices = vertices;
+            this.edges = edges;
+        }
+    }
+
+    private GraphGenerators(){
+    }
+
+    /**
+     * A random directed graph with n vertices and about n * degree edges
+     * between uniformly chosen endpoints, without repeated edges
+     * @param n the number of vertices
+     * @param degree the average out-degree
+     * @param maxWeight the largest edge weight
+     * @param seed the random seed
+     * @return the graph
+     */
+    public static Generated random(int n, int degree, int maxWeight, long seed){
+        Random r = new Random(seed);
+        List<Vertex> v = vertices(n);
+        List<Edge> e = new ArrayList<>(n * degree);
+        HashSet<Long> seen = new HashSet<>();
+        for(int i = 0; i < n * degree; i++){
+            int a = r.nextInt(n);
+            int b = r.nextInt(n);
+            if(seen.add((long)a * n + b))
+                e.add(new Edge(v.get(a), v.get(b), 1 + r.nextInt(maxWeight)));
+        }
+        return new Generated(v, e);
+    }
+
+    /**
+     * A side x side grid with edges both ways between horizontal and vertical
+     * neighbours, like a road network
+     * @param side the number of vertices along each side
+     * @param maxWeight the largest edge weight
+     * @param seed the random seed
+     * @return the graph
+     */
+    public static Generated grid(int side, int maxWeight, long seed){
+        Random r = new Random(seed);
+        List<Vertex> v = vertices(side * side);
+        List<Edge> e = new ArrayList<>(4 * side * side);
+        for(int y = 0; y < side; y++){
+            for(int x = 0; x < side; x++){
+                int id = y * side + x;
+                if(x + 1 < side)
+                    both(e, v.get(id), v.get(id + 1), 1 + r.nextInt(maxWeight));
+                if(y + 1 < side)
+                    both(e, v.get(id), v.get(id + side), 1 + r.nextInt(maxWeight));
+            }
+        }
+        return new Generated(v, e);
+    }
+
+    /**
+     * A scale-free graph grown by preferential attachment: every new vertex
+     * links both ways to degree existing vertices picked with probability
+     * proportional to their degree, which gives a few very large hubs
+     * @param n the number of vertices
+     * @param degree the links added with each vertex
+     * @param maxWeight the largest edge weight
+     * @param seed the random seed
+     * @return the graph
+     */
+    public static Generated scaleFree(int n, int degree, int maxWeight, long seed){
+        Random r = new Random(seed);
+        List<Vertex> v = vertices(n);
+        List<Edge> e = new ArrayList<>(2 * n * degree);
+        // every edge end once, so a uniform pick is a pick by degree
+        IntList ends = new IntList();
+        HashSet<Long> seen = new HashSet<>();
+        for(int i = 1; i < n; i++){
+            int links = Math.min(degree, i);
+            for(int k = 0; k < links; k++){
+                int j = ends.isEmpty() || r.nextInt(4) == 0 ? r.nextInt(i) : ends.get(r.nextInt(ends.size()));
+                if(!seen.add((long)Math.min(i, j) * n + Math.max(i, j)))
+                    continue;
+                both(e, v.get(i), v.get(j), 1 + r.nextInt(maxWeight));
+                ends.add(i);
+                ends.add(j);
+            }
+        }
+        return new Generated(v, e);
+    }
+
+    /**
+     * Generate a graph by name
+     * @param kind random, grid or scalefree
+     * @param n about how many vertices
+     * @param degree the average out-degree, ignored by grid
+     * @param maxWeight the largest edge weight
+     * @param seed the random seed
+     * @return the graph
+     * @throws IllegalArgumentException if kind is not a known generator
+     */
+    public static Generated byName(String kind, int n, int degree, int maxWeight, long seed){
+        switch(kind){
+            case "random":
+                return random(n, degree, maxWeight, seed);
+            case "grid":
+                return grid((int)Math.ceil(Math.sqrt(n)), maxWeight, seed);
+            case "scalefree":
+                return scaleFree(n, degree, maxWeight, seed);
+            default:
+                throw new IllegalArgumentException("Unknown graph kind " + kind);
+        }
+    }
+
+    private static List<Vertex> vertices(int n){
+        List<Vertex> v = new ArrayList<>(n);
+        for(int i = 0; i < n; i++)
+            v.add(new Vertex("v" + i));
+        return v;
+    }
+
+    private static void both(List<Edge> e, Vertex a, Vertex b, int w){
+        e.add(new Edge(a, b, w));
+        e.add(new Edge(b, a, w));
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.*;
+
+/**
+ * Union-find over a plain int array, with union by rank and path halving,
+ * so any sequence of operations runs in nearly constant amortized time each.
+ * Not thread-safe, except that root may be called from many threads at
+ * once while no union or find is running.
+ */
+public class ArrayUnionFind implements UnionFind {
+    // parent of each id, or -1 - rank for a root
+    private final int[] parent;
+    private int count;
+
+    /**
+     * Creates n singleton sets
+     * @param n the number of ids
+     * @throws IllegalArgumentException if n is negative
+     */
+    public ArrayUnionFind(int n){
+        if(n < 0)
+            throw new IllegalArgumentException("Size cannot be negative");
+        parent = new int[n];
+        Arrays.fill(parent, -1);
+        count = n;
+    }
+
+    public int size(){
+        return parent.length;
+    }
+
+    public int count(){
+        return count;
+    }
+
+    public int find(int v){
+        while(parent[v] >= 0){
+            // point v at its grandparent and step there
+            if(parent[parent[v]] >= 0)
+                parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Return the root of the set holding an id without shortening any path,
+     * so it only reads the array
+     * @param v an id
+     * @return the root id of its set
+     */
+    public int root(int v){
+        while(parent[v] >= 0)
+            v = parent[v];
+        return v;
+    }
+
+    public boolean union(int a, int b){
+        a = find(a);
+        b = find(b);
+        if(a == b)
+            return false;
+        // the root of lower rank goes under the other; ranks are stored negated
+        if(parent[a] > parent[b]){
+            int t = a;
+            a = b;
+            b = t;
+        }
+        if(parent[a] == parent[b])
+            parent[a]--;
+        parent[b] = a;
+        count--;
+        return true;
+    }
+}
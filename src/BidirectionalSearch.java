@@ -0,0 +1,139 @@
+import java.util.*;
+
+/**
+ * Point-to-point Dijkstra that searches forward from the start on out-edges
+ * and backward from the destination on the reversed graph at the same time,
+ * always advancing the side whose queue has the smaller minimum.
+ * The search stops once the two queue minimums add up to at least the best
+ * start-to-destination distance seen so far, which usually happens long before
+ * either side has settled everything closer than the destination.
+ * Not thread-safe; give each thread its own.
+ */
+public class BidirectionalSearch {
+    private final IndexedGraph graph;
+    private final ShortestPathEngine forward;
+    private final ShortestPathEngine backward;
+    private final QueueType queueType;
+
+    /**
+     * Creates a bidirectional search over the given graph
+     * @param graph the graph to search
+     */
+    public BidirectionalSearch(IndexedGraph graph){
+        this(graph, QueueType.BINARY_HEAP);
+    }
+
+    /**
+     * Creates a bidirectional search over the given graph
+     * @param graph the graph to search
+     * @param type the priority queue both halves run on
+     */
+    public BidirectionalSearch(IndexedGraph graph, QueueType type){
+        if(graph == null)
+            throw new IllegalArgumentException("Graph can't be null");
+        this.graph = graph;
+        queueType = type;
+        forward = new ShortestPathEngine(graph, type);
+        backward = new ShortestPathEngine(graph.reverse(), type);
+    }
+
+    /**
+     * Return the graph this search runs on
+     * @return the graph
+     */
+    public IndexedGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Return the queue type this search was created with
+     * @return the queue type
+     */
+    public QueueType queueType(){
+        return queueType;
+    }
+
+    /**
+     * Returns the shortest path from a to b in the graph, or null if there is
+     * no such path. The cost is always the same as the one Dijkstra's algorithm finds.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a Path from a (first) to b (last) and its cost, or null if b is not reachable from a
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b){
+        int s = graph.indexOf(a);
+        int t = graph.indexOf(b);
+        if(s < 0 || t < 0)
+            throw new IllegalArgumentException("Vertex does not exist in the graph");
+        if(s == t)
+            return new Path(Collections.singletonList(a), 0);
+
+        forward.start(s);
+        backward.start(t);
+        IndexedPriorityQueue fq = forward.queue();
+        IndexedPriorityQueue bq = backward.queue();
+        // best distance through an edge joining the two searches, and that edge
+        int best = Integer.MAX_VALUE;
+        int meetFrom = -1;
+        int meetTo = -1;
+
+        while(!fq.isEmpty() && !bq.isEmpty()){
+            // no path left in either queue can beat the best one found
+            if((long)fq.minKey() + bq.minKey() >= best)
+                break;
+            if(fq.minKey() <= bq.minKey()){
+                int u = fq.pollMin();
+                int du = forward.distance(u);
+                int[] targets = graph.targets(u);
+                int[] weights = graph.weights(u);
+                for(int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++){
+                    int v = targets[e];
+                    forward.improve(v, du + weights[e], u);
+                    // the edge u -> v joins the searches if the backward side has reached v
+                    if(backward.reached(v) && du + weights[e] + backward.distance(v) < best){
+                        best = du + weights[e] + backward.distance(v);
+                        meetFrom = u;
+                        meetTo = v;
+                    }
+                }
+            }else{
+                IndexedGraph reverse = backward.graph();
+                int u = bq.pollMin();
+                int du = backward.distance(u);
+                int[] targets = reverse.targets(u);
+                int[] weights = reverse.weights(u);
+                for(int e = reverse.edgeStart(u), end = reverse.edgeEnd(u); e < end; e++){
+                    int v = targets[e];
+                    backward.improve(v, du + weights[e], u);
+                    // the reversed edge u -> v is the edge v -> u of the graph
+                    if(forward.reached(v) && du + weights[e] + forward.distance(v) < best){
+                        best = du + weights[e] + forward.distance(v);
+                        meetFrom = v;
+                        meetTo = u;
+                    }
+                }
+            }
+        }
+        fq.clear();
+        bq.clear();
+
+        if(meetFrom == -1)
+            return null;
+        // forward back pointers lead from meetFrom to a, backward ones from meetTo to b
+        int hops = 0;
+        for(int v = meetFrom; v != -1; v = forward.parent(v))
+            hops++;
+        int before = hops;
+        for(int v = meetTo; v != -1; v = backward.parent(v))
+            hops++;
+        Vertex[] path = new Vertex[hops];
+        int i = before;
+        for(int v = meetFrom; v != -1; v = forward.parent(v))
+            path[--i] = graph.vertexAt(v);
+        i = before;
+        for(int v = meetTo; v != -1; v = backward.parent(v))
+            path[i++] = graph.vertexAt(v);
+        return new Path(Arrays.asList(path), best);
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+
+/**
+ * Dial's bucket queue: a monotone priority queue for Dijkstra's algorithm on
+ * integer weights no larger than maxWeight. Every queued key lies between the
+ * current minimum and the minimum plus maxWeight, so maxWeight + 1 buckets used
+ * circularly hold them all. Each bucket is a doubly linked list threaded through
+ * int arrays, which makes insert and decreaseKey O(1) and finding the minimum a
+ * walk over at most maxWeight + 1 buckets.
+ */
+public class BucketQueue implements IndexedPriorityQueue {
+    // head[b] is the first id in bucket b, or -1
+    private final int[] head;
+    // links of the bucket lists, by id
+    private final int[] next;
+    private final int[] prev;
+    private final int[] keys;
+    // true while an id is in the queue
+    private final boolean[] queued;
+    private int size;
+    // no queued key is smaller than current
+    private int current;
+
+    /**
+     * Creates an empty queue that can hold the ids 0 .. capacity-1
+     * @param capacity the number of distinct ids
+     * @param maxWeight the largest edge weight of the graph to be searched
+     */
+    public BucketQueue(int capacity, int maxWeight){
+        if(maxWeight < 0)
+            throw new IllegalArgumentException("Weight cannot be negative");
+        head = new int[maxWeight + 1];
+        Arrays.fill(head, -1);
+        next = new int[capacity];
+        prev = new int[capacity];
+        keys = new int[capacity];
+        queued = new boolean[capacity];
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean contains(int id){
+        return queued[id];
+    }
+
+    public int key(int id){
+        return keys[id];
+    }
+
+    public void insert(int id, int key){
+        if(queued[id])
+            throw new IllegalArgumentException("Id " + id + " is already in the queue");
+        checkKey(key);
+        keys[id] = key;
+        queued[id] = true;
+        link(id);
+        size++;
+    }
+
+    public void decreaseKey(int id, int key){
+        if(key > keys[id])
+            throw new IllegalArgumentException("Key cannot increase");
+        checkKey(key);
+        unlink(id);
+        keys[id] = key;
+        link(id);
+    }
+
+    public int minKey(){
+        advance();
+        return current;
+    }
+
+    public int pollMin(){
+        advance();
+        int id = head[bucket(current)];
+        unlink(id);
+        queued[id] = false;
+        size--;
+        return id;
+    }
+
+    public void clear(){
+        // every remaining key is within one lap of the buckets from current
+        for(int b = 0; size > 0 && b < head.length; b++){
+            int slot = bucket(current + b);
+            while(head[slot] != -1){
+                int id = head[slot];
+                unlink(id);
+                queued[id] = false;
+                size--;
+            }
+        }
+        current = 0;
+    }
+
+    // move current up to the smallest queued key
+    private void advance(){
+        if(size == 0)
+            throw new IllegalStateException("Queue is empty");
+        while(head[bucket(current)] == -1)
+            current++;
+    }
+
+    // keys must fit in the window of buckets ahead of the minimum
+    private void checkKey(int key){
+        if(key < current || (long)key - current >= head.length)
+            throw new IllegalArgumentException("Key " + key + " is outside the bucket window at " + current);
+    }
+
+    private int bucket(int key){
+        return key % head.length;
+    }
+
+    // push id onto the front of the bucket of its key
+    private void link(int id){
+        int b = bucket(keys[id]);
+        prev[id] = -1;
+        next[id] = head[b];
+        if(head[b] != -1)
+            prev[head[b]] = id;
+        head[b] = id;
+    }
+
+    private void unlink(int id){
+        if(prev[id] != -1)
+            next[prev[id]] = next[id];
+        else
+            head[bucket(keys[id])] = next[id];
+        if(next[id] != -1)
+            prev[next[id]] = prev[id];
+    }
+}
@@ -0,0 +1,360 @@
+import java.util.*;
+
+/**
+ * An immutable graph stored in compressed sparse row form.
+ * Every vertex is numbered with a dense int id and the out-edges of vertex v
+ * live in targets[offsets[v] .. offsets[v+1]) and weights[offsets[v] .. offsets[v+1]),
+ * sorted by target id. Vertices, edges and adjacencies are handed out as views over
+ * these arrays, so the graph costs about 8 bytes per edge instead of a map entry per edge.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class CompactGraph implements IndexedGraph {
+    // vertex id --> vertex
+    private final Vertex[] vertexArray;
+    // vertex --> vertex id, used to translate queries into ids
+    private final HashMap<Vertex, Integer> ids;
+    // out-edges of v are the slots offsets[v] .. offsets[v+1]-1 of targets and weights
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    // the same graph with every edge turned around, built on first use
+    private volatile CompactGraph reverse;
+
+    /**
+     * Creates a CompactGraph object with the given collection of vertices
+     * and the given collection of edges.
+     * Equal duplicate edges are stored once.
+     * @param v a collection of the vertices in this graph
+     * @param e a collection of the edges in this graph
+     * @throws IllegalArgumentException if an edge weight is negative or two edges
+     *   join the same vertices with different weights
+     * @throws NoSuchElementException if an edge uses a vertex that is not in v
+     */
+    public CompactGraph(Collection<Vertex> v, Collection<Edge> e){
+        // handle if client gives null values
+        if(v == null || e == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+
+        // number the vertices in iteration order, dropping repeats
+        ids = new HashMap<>();
+        List<Vertex> order = new ArrayList<>(v.size());
+        for(Vertex vertex: v){
+            if(ids.putIfAbsent(vertex, order.size()) == null)
+                order.add(vertex);
+        }
+        vertexArray = order.toArray(new Vertex[order.size()]);
+        int n = vertexArray.length;
+
+        // translate the edges into ids, validating them the same way MyGraph does
+        int m = e.size();
+        int[] src = new int[m];
+        int[] dst = new int[m];
+        int[] w = new int[m];
+        int i = 0;
+        for(Edge edge: e){
+            if(edge.getWeight() < 0)
+                throw new IllegalArgumentException("Edge weight cannot be negative");
+            Integer s = ids.get(edge.getSource());
+            if(s == null)
+                throw new NoSuchElementException("Source vertex " + edge.getSource() + " is not in the graph");
+            Integer d = ids.get(edge.getDestination());
+            if(d == null)
+                throw new NoSuchElementException("Destination vertex " + edge.getDestination() + " is not in the graph");
+            src[i] = s;
+            dst[i] = d;
+            w[i] = edge.getWeight();
+            i++;
+        }
+
+        int[][] csr = buildRows(n, src, dst, w, m);
+        offsets = csr[0];
+        targets = csr[1];
+        weights = csr[2];
+    }
+
+    // used by factories that have already produced valid CSR arrays
+    CompactGraph(Vertex[] vertexArray, int[] offsets, int[] targets, int[] weights){
+        this.vertexArray = vertexArray;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        ids = new HashMap<>(vertexArray.length * 2);
+        for(int i = 0; i < vertexArray.length; i++)
+            ids.put(vertexArray[i], i);
+    }
+
+    // used by GraphCore, which hands over its own numbering and rows already in CSR form
+    CompactGraph(Vertex[] vertexArray, HashMap<Vertex, Integer> ids, int[] offsets, int[] targets, int[] weights){
+        this.vertexArray = vertexArray;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    // used by structures that keep their own rows over the vertex numbering of base
+    CompactGraph(CompactGraph base, int[] offsets, int[] targets, int[] weights){
+        this.vertexArray = base.vertexArray;
+        this.ids = base.ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    // builds the reverse of forward, sharing its vertex numbering
+    private CompactGraph(CompactGraph forward){
+        vertexArray = forward.vertexArray;
+        ids = forward.ids;
+        int n = vertexArray.length;
+        int m = forward.targets.length;
+        // swap the ends of every edge and bucket them again
+        int[] src = new int[m];
+        for(int v = 0; v < n; v++)
+            for(int e = forward.offsets[v]; e < forward.offsets[v + 1]; e++)
+                src[e] = v;
+        int[][] csr = buildRows(n, forward.targets, src, forward.weights, m);
+        offsets = csr[0];
+        targets = csr[1];
+        weights = csr[2];
+        reverse = forward;
+    }
+
+    /**
+     * Return g as a CompactGraph, converting it only if it is not one already
+     * @param g a graph
+     * @return a CompactGraph with the same vertices and edges as g
+     */
+    public static CompactGraph of(Graph g){
+        if(g instanceof CompactGraph)
+            return (CompactGraph)g;
+        if(g instanceof MyGraph)
+            return ((MyGraph)g).index();
+        if(g instanceof MSTGraph)
+            return ((MSTGraph)g).index();
+        return new CompactGraph(g.vertices(), g.edges());
+    }
+
+    // helper that buckets m edges by source, sorts every row by target and drops equal duplicates
+    // returns {offsets, targets, weights}
+    // throws illegal argument exception if two edges share endpoints but not weights
+    static int[][] buildRows(int n, int[] src, int[] dst, int[] w, int m){
+        // counting sort the edges by source
+        int[] offsets = new int[n + 1];
+        for(int i = 0; i < m; i++)
+            offsets[src[i] + 1]++;
+        for(int i = 0; i < n; i++)
+            offsets[i + 1] += offsets[i];
+        // pack target and weight into one long so a row sorts by target in place
+        long[] packed = new long[m];
+        int[] next = Arrays.copyOf(offsets, n);
+        for(int i = 0; i < m; i++)
+            packed[next[src[i]]++] = ((long)dst[i] << 32) | (w[i] & 0xffffffffL);
+
+        // sort each row and squeeze out duplicates, compacting as we go
+        int[] newOffsets = new int[n + 1];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+        int k = 0;
+        for(int v = 0; v < n; v++){
+            newOffsets[v] = k;
+            Arrays.sort(packed, offsets[v], offsets[v + 1]);
+            for(int i = offsets[v]; i < offsets[v + 1]; i++){
+                int t = (int)(packed[i] >>> 32);
+                int weight = (int)packed[i];
+                if(k > newOffsets[v] && targets[k - 1] == t){
+                    // same endpoints as the previous edge in the row
+                    if(weights[k - 1] != weight)
+                        throw new IllegalArgumentException("Non equal duplicate edges");
+                }else{
+                    targets[k] = t;
+                    weights[k] = weight;
+                    k++;
+                }
+            }
+        }
+        newOffsets[n] = k;
+        if(k < m){
+            targets = Arrays.copyOf(targets, k);
+            weights = Arrays.copyOf(weights, k);
+        }
+        return new int[][]{newOffsets, targets, weights};
+    }
+
+    /**
+     * Return the collection of vertices of this graph, in id order
+     * @return the vertices as a collection (which is anything iterable)
+     */
+    public Collection<Vertex> vertices() {
+        return new AbstractList<Vertex>() {
+            public Vertex get(int index) {
+                return vertexAt(index);
+            }
+
+            public int size() {
+                return vertexArray.length;
+            }
+
+            public boolean contains(Object o) {
+                return o instanceof Vertex && indexOf((Vertex)o) >= 0;
+            }
+        };
+    }
+
+    /**
+     * Return the collection of edges of this graph. The Edge objects are
+     * created as the collection is iterated.
+     * @return the edges as a collection (which is anything iterable)
+     */
+    public Collection<Edge> edges() {
+        return new AbstractCollection<Edge>() {
+            public Iterator<Edge> iterator() {
+                return new Iterator<Edge>() {
+                    int source = 0;
+                    int slot = 0;
+
+                    public boolean hasNext() {
+                        return slot < targets.length;
+                    }
+
+                    public Edge next() {
+                        if(!hasNext())
+                            throw new NoSuchElementException();
+                        // skip forward to the row that owns this slot
+                        while(offsets[source + 1] <= slot)
+                            source++;
+                        Edge e = new Edge(vertexArray[source], vertexArray[targets[slot]], weights[slot]);
+                        slot++;
+                        return e;
+                    }
+                };
+            }
+
+            public int size() {
+                return targets.length;
+            }
+
+            public boolean contains(Object o) {
+                if(!(o instanceof Edge))
+                    return false;
+                Edge e = (Edge)o;
+                int s = indexOf(e.getSource());
+                int d = indexOf(e.getDestination());
+                return s >= 0 && d >= 0 && edgeCost(s, d) == e.getWeight();
+            }
+        };
+    }
+
+    /**
+     * Return a collection of vertices adjacent to a given vertex v.
+     *   i.e., the set of all vertices w where edges v -> w exist in the graph.
+     * Return an empty collection if there are no adjacent vertices.
+     * @param v one of the vertices in the graph
+     * @return an iterable collection of vertices adjacent to v in the graph
+     * @throws IllegalArgumentException if v does not exist.
+     */
+    public Collection<Vertex> adjacentVertices(Vertex v) {
+        final int id = indexOf(v);
+        if(id < 0)
+            throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
+        return new AbstractList<Vertex>() {
+            public Vertex get(int index) {
+                if(index < 0 || index >= size())
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                return vertexArray[targets[offsets[id] + index]];
+            }
+
+            public int size() {
+                return offsets[id + 1] - offsets[id];
+            }
+
+            public boolean contains(Object o) {
+                if(!(o instanceof Vertex))
+                    return false;
+                int t = indexOf((Vertex)o);
+                return t >= 0 && edgeCost(id, t) != -1;
+            }
+        };
+    }
+
+    /**
+     * Test whether vertex b is adjacent to vertex a (i.e. a -> b) in a directed graph.
+     * Assumes that we do not have negative cost edges in the graph.
+     * @param a one vertex
+     * @param b another vertex
+     * @return cost of edge if there is a directed edge from a to b in the graph,
+     * return -1 otherwise.
+     * @throws IllegalArgumentException if a or b do not exist.
+     */
+    public int edgeCost(Vertex a, Vertex b) {
+        int s = indexOf(a);
+        int d = indexOf(b);
+        if(s < 0 || d < 0)
+            throw new IllegalArgumentException("Vertex does not exist in graph");
+        return edgeCost(s, d);
+    }
+
+    /**
+     * Return the cost of the edge a -> b by binary searching the row of a
+     * @param a a vertex id
+     * @param b a vertex id
+     * @return cost of the edge from a to b, or -1 if there is none
+     */
+    public int edgeCost(int a, int b) {
+        int i = Arrays.binarySearch(targets, offsets[a], offsets[a + 1], b);
+        return i < 0 ? -1 : weights[i];
+    }
+
+    /**
+     * Return the number of distinct edges in this graph
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public int vertexCount() {
+        return vertexArray.length;
+    }
+
+    public int indexOf(Vertex v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    public Vertex vertexAt(int id) {
+        return vertexArray[id];
+    }
+
+    public int edgeStart(int v) {
+        return offsets[v];
+    }
+
+    public int edgeEnd(int v) {
+        return offsets[v + 1];
+    }
+
+    public int[] targets(int v) {
+        return targets;
+    }
+
+    public int[] weights(int v) {
+        return weights;
+    }
+
+    /**
+     * Return the reverse of this graph, building the reverse rows the first
+     * time it is asked for. Both graphs share one vertex numbering.
+     * @return the reversed graph
+     */
+    public CompactGraph reverse() {
+        CompactGraph r = reverse;
+        if(r == null){
+            synchronized(this){
+                if(reverse == null)
+                    reverse = new CompactGraph(this);
+                r = reverse;
+            }
+        }
+        return r;
+    }
+}
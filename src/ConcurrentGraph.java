@@ -0,0 +1,412 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A graph that many threads can query while others change its edges.
+ * Readers always work on an immutable Snapshot; writers copy only the
+ * segment of adjacency rows they change, build a new snapshot that shares
+ * every other segment with the old one, and publish it atomically. Queries
+ * therefore never block and never see a half-applied change, and a snapshot
+ * can be pinned to run a batch of queries against one consistent version.
+ * The vertex set is fixed at construction.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class ConcurrentGraph implements Graph {
+    // vertices per segment of adjacency rows, the unit copied on a write
+    public static final int SEGMENT_SIZE = 64;
+
+    // vertex numbering shared by every snapshot
+    private final CompactGraph numbering;
+    // the latest published snapshot
+    private final AtomicReference<Snapshot> current;
+    // one reusable dijkstra engine per querying thread, tied to the snapshot it was made for
+    private final ThreadLocal<ShortestPathEngine> engines = new ThreadLocal<>();
+    // shortest path results in front of shortestPath, null when caching is off
+    private volatile PathCache pathCache;
+
+    /**
+     * Creates a ConcurrentGraph object with the given collection of vertices
+     * and the given collection of edges.
+     * @param v a collection of the vertices in this graph
+     * @param e a collection of the edges in this graph
+     * @throws IllegalArgumentException if an edge weight is negative or two edges
+     *   join the same vertices with different weights
+     * @throws NoSuchElementException if an edge uses a vertex that is not in v
+     */
+    public ConcurrentGraph(Collection<Vertex> v, Collection<Edge> e){
+        numbering = new CompactGraph(v, e);
+        int n = numbering.vertexCount();
+        Segment[] segments = new Segment[(n + SEGMENT_SIZE - 1) / SEGMENT_SIZE];
+        for(int s = 0; s < segments.length; s++){
+            int first = s * SEGMENT_SIZE;
+            int last = Math.min(n, first + SEGMENT_SIZE);
+            int from = numbering.edgeStart(first);
+            int to = numbering.edgeEnd(last - 1);
+            int[] offsets = new int[last - first + 1];
+            for(int i = first; i <= last; i++)
+                offsets[i - first] = (i < last ? numbering.edgeStart(i) : to) - from;
+            int[] targets = Arrays.copyOfRange(numbering.targets(first), from, to);
+            int[] weights = Arrays.copyOfRange(numbering.weights(first), from, to);
+            segments[s] = new Segment(offsets, targets, weights);
+        }
+        current = new AtomicReference<>(new Snapshot(segments, numbering.edgeCount(), 0));
+    }
+
+    /**
+     * Return the latest version of the graph. It never changes, so a batch of
+     * queries run on it all see the same edges however the graph is updated meanwhile.
+     * @return the current snapshot
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Return the number of edge changes published so far
+     * @return the version of the latest snapshot
+     */
+    public long version() {
+        return current.get().version();
+    }
+
+    public Collection<Vertex> vertices() {
+        return snapshot().vertices();
+    }
+
+    public Collection<Edge> edges() {
+        return snapshot().edges();
+    }
+
+    public Collection<Vertex> adjacentVertices(Vertex v) {
+        return snapshot().adjacentVertices(v);
+    }
+
+    public int edgeCost(Vertex a, Vertex b) {
+        return snapshot().edgeCost(a, b);
+    }
+
+    public Path shortestPath(Vertex a, Vertex b) {
+        Snapshot s = snapshot();
+        PathCache cache = pathCache;
+        if(cache != null)
+            return cache.get(a, b, s.version(), () -> s.shortestPath(a, b));
+        return s.shortestPath(a, b);
+    }
+
+    /**
+     * Put a cache in front of shortestPath(a, b). Each published change
+     * empties it on the next query of the new snapshot.
+     * @param cache the cache to use, or null to stop caching
+     */
+    public void setPathCache(PathCache cache) {
+        pathCache = cache;
+    }
+
+    /**
+     * Return the cache in front of shortestPath, for its statistics
+     * @return the cache, or null if caching is off
+     */
+    public PathCache pathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Add the edge e and publish the result as a new snapshot
+     * @param e the edge to add
+     * @return true if the edge was added, false if an equal edge was already there
+     * @throws IllegalArgumentException if the weight is negative or an edge with
+     *   the same endpoints and a different weight exists
+     * @throws NoSuchElementException if the source or destination is not in the graph
+     */
+    public synchronized boolean addEdge(Edge e) {
+        if(e == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        if(e.getWeight() < 0)
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        int a = numbering.indexOf(e.getSource());
+        if(a < 0)
+            throw new NoSuchElementException("Source vertex " + e.getSource() + " is not in the graph");
+        int b = numbering.indexOf(e.getDestination());
+        if(b < 0)
+            throw new NoSuchElementException("Destination vertex " + e.getDestination() + " is not in the graph");
+        int old = snapshot().edgeCost(a, b);
+        if(old == e.getWeight())
+            return false;
+        if(old != -1)
+            throw new IllegalArgumentException("Non equal duplicate edges");
+        publish(a, b, e.getWeight());
+        return true;
+    }
+
+    /**
+     * Remove the edge a -> b and publish the result as a new snapshot
+     * @param a the source of the edge
+     * @param b the destination of the edge
+     * @return the weight of the removed edge, or -1 if there was no such edge
+     * @throws IllegalArgumentException if a or b do not exist.
+     */
+    public synchronized int removeEdge(Vertex a, Vertex b) {
+        int s = id(a);
+        int d = id(b);
+        int old = snapshot().edgeCost(s, d);
+        if(old != -1)
+            publish(s, d, -1);
+        return old;
+    }
+
+    /**
+     * Change the weight of the edge a -> b and publish the result as a new snapshot
+     * @param a the source of the edge
+     * @param b the destination of the edge
+     * @param weight the new weight
+     * @return the old weight
+     * @throws IllegalArgumentException if a or b do not exist or the weight is negative
+     * @throws NoSuchElementException if there is no edge from a to b
+     */
+    public synchronized int updateWeight(Vertex a, Vertex b, int weight) {
+        if(weight < 0)
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        int s = id(a);
+        int d = id(b);
+        int old = snapshot().edgeCost(s, d);
+        if(old == -1)
+            throw new NoSuchElementException("No edge from " + a + " to " + b);
+        if(old != weight)
+            publish(s, d, weight);
+        return old;
+    }
+
+    // helper that copies the segment holding row a with the edge a -> b set to weight (-1 removes it)
+    // and publishes a snapshot sharing every other segment; callers hold the lock
+    private void publish(int a, int b, int weight){
+        Snapshot old = current.get();
+        int s = a / SEGMENT_SIZE;
+        int row = a - s * SEGMENT_SIZE;
+        Segment seg = old.segments[s];
+        int start = seg.offsets[row];
+        int end = seg.offsets[row + 1];
+        int i = Arrays.binarySearch(seg.targets, start, end, b);
+        boolean present = i >= 0;
+        int at = present ? i : -i - 1;
+        // the row grows by one for a new edge and shrinks by one for a removed one
+        int delta = present ? (weight == -1 ? -1 : 0) : 1;
+        int[] targets = new int[seg.targets.length + delta];
+        int[] weights = new int[targets.length];
+        System.arraycopy(seg.targets, 0, targets, 0, at);
+        System.arraycopy(seg.weights, 0, weights, 0, at);
+        int skip = present ? 1 : 0;
+        int keep = weight == -1 ? 0 : 1;
+        if(keep == 1){
+            targets[at] = b;
+            weights[at] = weight;
+        }
+        System.arraycopy(seg.targets, at + skip, targets, at + keep, seg.targets.length - at - skip);
+        System.arraycopy(seg.weights, at + skip, weights, at + keep, seg.weights.length - at - skip);
+        int[] offsets = seg.offsets.clone();
+        for(int r = row + 1; r < offsets.length; r++)
+            offsets[r] += delta;
+
+        Segment[] segments = old.segments.clone();
+        segments[s] = new Segment(offsets, targets, weights);
+        current.set(new Snapshot(segments, old.edgeCount + delta, old.version + 1));
+    }
+
+    // helper to translate a vertex into its id
+    // throws illegal argument exception if it is not in the graph
+    private int id(Vertex v){
+        int id = numbering.indexOf(v);
+        if(id < 0)
+            throw new IllegalArgumentException("Vertex does not exist in graph");
+        return id;
+    }
+
+    // adjacency rows of SEGMENT_SIZE consecutive vertices in compressed sparse row form, never modified
+    private static class Segment {
+        final int[] offsets;
+        final int[] targets;
+        final int[] weights;
+
+        Segment(int[] offsets, int[] targets, int[] weights){
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * One immutable version of a ConcurrentGraph. Safe to share between threads;
+     * queries on it run on the calling thread's search engine.
+     */
+    public class Snapshot implements IndexedGraph {
+        private final Segment[] segments;
+        private final int edgeCount;
+        private final long version;
+        // the same edges turned around, built on first use
+        private volatile CompactGraph reverse;
+
+        private Snapshot(Segment[] segments, int edgeCount, long version){
+            this.segments = segments;
+            this.edgeCount = edgeCount;
+            this.version = version;
+        }
+
+        /**
+         * Return the number of edge changes published before this snapshot
+         * @return the version
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Returns the shortest path from a to b in this snapshot, or null if there is
+         * no such path. Uses Dijkstra's algorithm.
+         * @param a the starting vertex
+         * @param b the destination vertex
+         * @return a Path from a (first) to b (last) and its cost, or null if b is not reachable from a
+         * @throws IllegalArgumentException if a or b does not exist.
+         */
+        public Path shortestPath(Vertex a, Vertex b) {
+            return engine().shortestPath(a, b);
+        }
+
+        /**
+         * Returns the shortest paths from source to every vertex of this snapshot
+         * @param source the starting vertex
+         * @return the shortest path tree rooted at source
+         * @throws IllegalArgumentException if source does not exist.
+         */
+        public ShortestPathTree shortestPathTree(Vertex source) {
+            int s = indexOf(source);
+            if(s < 0)
+                throw new IllegalArgumentException("Vertex does not exist in the graph");
+            ShortestPathEngine engine = engine();
+            engine.search(s, -1);
+            return ShortestPathTree.of(engine, s);
+        }
+
+        // helper to get the calling thread's engine for this snapshot
+        private ShortestPathEngine engine(){
+            ShortestPathEngine engine = engines.get();
+            if(engine == null || engine.graph() != this){
+                engine = new ShortestPathEngine(this);
+                engines.set(engine);
+            }
+            return engine;
+        }
+
+        public Collection<Vertex> vertices() {
+            return numbering.vertices();
+        }
+
+        public Collection<Edge> edges() {
+            List<Edge> edges = new ArrayList<>(edgeCount);
+            for(int v = 0; v < vertexCount(); v++){
+                int[] targets = targets(v);
+                int[] weights = weights(v);
+                for(int e = edgeStart(v); e < edgeEnd(v); e++)
+                    edges.add(new Edge(vertexAt(v), vertexAt(targets[e]), weights[e]));
+            }
+            return Collections.unmodifiableList(edges);
+        }
+
+        public Collection<Vertex> adjacentVertices(Vertex v) {
+            int id = indexOf(v);
+            if(id < 0)
+                throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
+            List<Vertex> adjacent = new ArrayList<>(edgeEnd(id) - edgeStart(id));
+            int[] targets = targets(id);
+            for(int e = edgeStart(id); e < edgeEnd(id); e++)
+                adjacent.add(vertexAt(targets[e]));
+            return Collections.unmodifiableList(adjacent);
+        }
+
+        public int edgeCost(Vertex a, Vertex b) {
+            int s = indexOf(a);
+            int d = indexOf(b);
+            if(s < 0 || d < 0)
+                throw new IllegalArgumentException("Vertex does not exist in graph");
+            return edgeCost(s, d);
+        }
+
+        /**
+         * Return the cost of the edge a -> b
+         * @param a a vertex id
+         * @param b a vertex id
+         * @return cost of the edge from a to b, or -1 if there is none
+         */
+        public int edgeCost(int a, int b) {
+            int i = Arrays.binarySearch(targets(a), edgeStart(a), edgeEnd(a), b);
+            return i < 0 ? -1 : weights(a)[i];
+        }
+
+        /**
+         * Return the number of edges in this snapshot
+         * @return the number of edges
+         */
+        public int edgeCount() {
+            return edgeCount;
+        }
+
+        public int vertexCount() {
+            return numbering.vertexCount();
+        }
+
+        public int indexOf(Vertex v) {
+            return numbering.indexOf(v);
+        }
+
+        public Vertex vertexAt(int id) {
+            return numbering.vertexAt(id);
+        }
+
+        public int edgeStart(int v) {
+            return segments[v / SEGMENT_SIZE].offsets[v % SEGMENT_SIZE];
+        }
+
+        public int edgeEnd(int v) {
+            return segments[v / SEGMENT_SIZE].offsets[v % SEGMENT_SIZE + 1];
+        }
+
+        public int[] targets(int v) {
+            return segments[v / SEGMENT_SIZE].targets;
+        }
+
+        public int[] weights(int v) {
+            return segments[v / SEGMENT_SIZE].weights;
+        }
+
+        /**
+         * Return the reverse of this snapshot, built the first time it is asked for
+         * @return the reversed graph, sharing this snapshot's vertex numbering
+         */
+        public CompactGraph reverse() {
+            CompactGraph r = reverse;
+            if(r == null){
+                synchronized(this){
+                    if(reverse == null){
+                        int n = vertexCount();
+                        int[] src = new int[edgeCount];
+                        int[] dst = new int[edgeCount];
+                        int[] w = new int[edgeCount];
+                        int i = 0;
+                        for(int v = 0; v < n; v++){
+                            int[] targets = targets(v);
+                            int[] weights = weights(v);
+                            for(int e = edgeStart(v); e < edgeEnd(v); e++){
+                                src[i] = targets[e];
+                                dst[i] = v;
+                                w[i] = weights[e];
+                                i++;
+                            }
+                        }
+                        int[][] csr = CompactGraph.buildRows(n, src, dst, w, edgeCount);
+                        reverse = new CompactGraph(numbering, csr[0], csr[1], csr[2]);
+                    }
+                    r = reverse;
+                }
+            }
+            return r;
+        }
+    }
+}
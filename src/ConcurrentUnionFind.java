@@ -0,0 +1,121 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Lock-free union-find that any number of threads may use at once.
+ * Parents change only by compare-and-set: finds halve paths as they go and a
+ * union links one root under the other, retrying if either stopped being a
+ * root in between. A rank cannot be updated in the same step as a parent, so
+ * roots are linked by a fixed pseudo-random priority of their ids instead,
+ * which keeps trees just as shallow in expectation.
+ * The bulk operations split large arrays across the common fork-join pool.
+ */
+public class ConcurrentUnionFind implements UnionFind {
+    // arrays at least this long are processed in parallel
+    static final int PARALLEL = 1 << 13;
+
+    // parent of each id, roots are their own parent
+    private final AtomicIntegerArray parent;
+    private final AtomicInteger count;
+
+    /**
+     * Creates n singleton sets
+     * @param n the number of ids
+     * @throws IllegalArgumentException if n is negative
+     */
+    public ConcurrentUnionFind(int n){
+        if(n < 0)
+            throw new IllegalArgumentException("Size cannot be negative");
+        parent = new AtomicIntegerArray(n);
+        for(int i = 0; i < n; i++)
+            parent.set(i, i);
+        count = new AtomicInteger(n);
+    }
+
+    public int size(){
+        return parent.length();
+    }
+
+    public int count(){
+        return count.get();
+    }
+
+    public int find(int v){
+        int p = parent.get(v);
+        while(p != v){
+            int gp = parent.get(p);
+            // another thread may have moved v already, which is just as good
+            parent.compareAndSet(v, p, gp);
+            v = gp;
+            p = parent.get(v);
+        }
+        return v;
+    }
+
+    public boolean union(int a, int b){
+        while(true){
+            a = find(a);
+            b = find(b);
+            if(a == b)
+                return false;
+            if(below(a, b)){
+                if(parent.compareAndSet(a, a, b)){
+                    count.decrementAndGet();
+                    return true;
+                }
+            }else if(parent.compareAndSet(b, b, a)){
+                count.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    public boolean connected(int a, int b){
+        while(true){
+            a = find(a);
+            b = find(b);
+            if(a == b)
+                return true;
+            // a was a root after b was found, so the two were apart at that moment
+            if(parent.get(a) == a)
+                return false;
+        }
+    }
+
+    public int unionAll(int[] a, int[] b){
+        if(a.length != b.length)
+            throw new IllegalArgumentException("Id arrays differ in length");
+        return (int)range(a.length).filter(i -> union(a[i], b[i])).count();
+    }
+
+    public int[] findAll(int[] ids){
+        int[] roots = new int[ids.length];
+        range(ids.length).forEach(i -> roots[i] = find(ids[i]));
+        return roots;
+    }
+
+    public int[] components(){
+        int[] roots = new int[size()];
+        range(roots.length).forEach(v -> roots[v] = find(v));
+        return roots;
+    }
+
+    // true if root a goes under root b; every pair of ids is ordered the same way by every thread
+    private static boolean below(int a, int b){
+        int pa = mix(a);
+        int pb = mix(b);
+        return pa < pb || (pa == pb && a < b);
+    }
+
+    // scrambles the bits of an id so linking order does not follow the numbering
+    private static int mix(int x){
+        x *= 0x9e3779b9;
+        return x ^ (x >>> 16);
+    }
+
+    private static IntStream range(int n){
+        IntStream r = IntStream.range(0, n);
+        return n >= PARALLEL ? r.parallel() : r;
+    }
+}
@@ -0,0 +1,540 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction Hierarchies index for fast point-to-point queries on a graph
+ * that rarely changes.
+ * Preprocessing contracts vertices one by one in order of importance. Removing
+ * a vertex v adds a shortcut u -> w for every pair of neighbors u -> v -> w whose
+ * shortest path runs through v, unless a witness search finds another path no
+ * longer than it. A query then only follows edges toward more important
+ * vertices, forward from the start and backward from the destination, which
+ * settles a few hundred vertices even on very large graphs. Shortcuts remember
+ * the vertex they skip so paths are unpacked back into original edges.
+ *
+ * Vertices are ordered by edge difference (shortcuts added minus edges removed)
+ * plus the number of neighbors already contracted. Each round contracts an
+ * independent set of vertices whose priority is lower than all their neighbors'.
+ * Witness searches for these vertices and priority updates run in parallel;
+ * witness searches never pass through a vertex contracted in the same round,
+ * so the shortcuts found in parallel are exactly as safe as sequential ones.
+ */
+public class ContractionHierarchy {
+    // witness searches give up after settling this many vertices and add the shortcut
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final CompactGraph graph;
+    // rank[v] is the position of v in the contraction order
+    private final int[] rank;
+    // edges u -> w with rank[u] < rank[w], stored at u
+    private final CompactGraph up;
+    // edges w -> u with rank[u] < rank[w], stored reversed at u so backward searches also go up
+    private final CompactGraph down;
+    // vertex skipped by each slot of up and down, or -1 for an original edge
+    private final int[] upMiddle;
+    private final int[] downMiddle;
+    // query state for each querying thread
+    private final ThreadLocal<ShortestPathEngine[]> queries = new ThreadLocal<>();
+
+    private ContractionHierarchy(CompactGraph graph, int[] rank, CompactGraph up, int[] upMiddle,
+                                 CompactGraph down, int[] downMiddle){
+        this.graph = graph;
+        this.rank = rank;
+        this.up = up;
+        this.upMiddle = upMiddle;
+        this.down = down;
+        this.downMiddle = downMiddle;
+    }
+
+    /**
+     * Build a contraction hierarchy for g using all available processors
+     * @param g the graph
+     * @return the contraction hierarchy
+     */
+    public static ContractionHierarchy build(Graph g){
+        return build(g, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Build a contraction hierarchy for g
+     * @param g the graph
+     * @param threads how many threads preprocessing may use
+     * @return the contraction hierarchy
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public static ContractionHierarchy build(Graph g, int threads){
+        if(g == null)
+            throw new IllegalArgumentException("Graph can't be null");
+        if(threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try{
+            return new Builder(CompactGraph.of(g), pool).build();
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Return the graph this hierarchy was built for
+     * @return the graph
+     */
+    public CompactGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Return the number of shortcuts preprocessing added
+     * @return the number of shortcut edges
+     */
+    public int shortcutCount(){
+        int count = 0;
+        for(int m: upMiddle)
+            if(m >= 0)
+                count++;
+        for(int m: downMiddle)
+            if(m >= 0)
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns the shortest path from a to b in the graph, or null if there is
+     * no such path. The cost is the same as MyGraph.shortestPath returns.
+     * Safe to call from many threads at once.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a Path from a (first) to b (last) in original edges and its cost,
+     *   or null if b is not reachable from a
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b){
+        int s = graph.indexOf(a);
+        int t = graph.indexOf(b);
+        if(s < 0 || t < 0)
+            throw new IllegalArgumentException("Vertex does not exist in the graph");
+        if(s == t)
+            return new Path(Collections.singletonList(a), 0);
+
+        ShortestPathEngine[] engines = queries.get();
+        if(engines == null){
+            engines = new ShortestPathEngine[]{new ShortestPathEngine(up), new ShortestPathEngine(down)};
+            queries.set(engines);
+        }
+        ShortestPathEngine forward = engines[0];
+        ShortestPathEngine backward = engines[1];
+        IndexedPriorityQueue fq = forward.queue();
+        IndexedPriorityQueue bq = backward.queue();
+        forward.start(s);
+        backward.start(t);
+
+        // both searches only climb, so they meet at the highest ranked vertex of the path
+        int best = Integer.MAX_VALUE;
+        int meet = -1;
+        while(true){
+            boolean forwardOpen = !fq.isEmpty() && fq.minKey() < best;
+            boolean backwardOpen = !bq.isEmpty() && bq.minKey() < best;
+            if(!forwardOpen && !backwardOpen)
+                break;
+            ShortestPathEngine side, other;
+            if(forwardOpen && (!backwardOpen || fq.minKey() <= bq.minKey())){
+                side = forward;
+                other = backward;
+            }else{
+                side = backward;
+                other = forward;
+            }
+            int u = side.queue().pollMin();
+            if(other.reached(u) && (long)side.distance(u) + other.distance(u) < best){
+                best = side.distance(u) + other.distance(u);
+                meet = u;
+            }
+            side.relax(u);
+        }
+        fq.clear();
+        bq.clear();
+        if(meet == -1)
+            return null;
+
+        // collect the hierarchy path a .. meet .. b, then expand its shortcuts
+        List<Vertex> path = new ArrayList<>();
+        int[] chain = new int[16];
+        int hops = 0;
+        for(int v = meet; v != -1; v = forward.parent(v)){
+            if(hops == chain.length)
+                chain = Arrays.copyOf(chain, hops * 2);
+            chain[hops++] = v;
+        }
+        path.add(graph.vertexAt(s));
+        for(int i = hops - 1; i > 0; i--)
+            unpack(chain[i], chain[i - 1], path);
+        for(int v = meet; backward.parent(v) != -1; v = backward.parent(v))
+            unpack(v, backward.parent(v), path);
+        return new Path(path, best);
+    }
+
+    // append the original vertices of the hierarchy edge a -> b to path, not including a
+    private void unpack(int a, int b, List<Vertex> path){
+        // stack of edges still to expand, most recent on top
+        int[] stack = new int[32];
+        int top = 0;
+        stack[top++] = a;
+        stack[top++] = b;
+        while(top > 0){
+            int to = stack[--top];
+            int from = stack[--top];
+            int middle = middle(from, to);
+            if(middle < 0){
+                path.add(graph.vertexAt(to));
+            }else{
+                if(top + 4 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                // expand from -> middle before middle -> to
+                stack[top++] = middle;
+                stack[top++] = to;
+                stack[top++] = from;
+                stack[top++] = middle;
+            }
+        }
+    }
+
+    // the vertex skipped by hierarchy edge a -> b, or -1 if it is an original edge
+    // an edge is stored at whichever end was contracted first
+    private int middle(int a, int b){
+        if(rank[a] < rank[b]){
+            int[] targets = up.targets(a);
+            for(int e = up.edgeStart(a); e < up.edgeEnd(a); e++)
+                if(targets[e] == b)
+                    return upMiddle[e];
+        }else{
+            int[] targets = down.targets(b);
+            for(int e = down.edgeStart(b); e < down.edgeEnd(b); e++)
+                if(targets[e] == a)
+                    return downMiddle[e];
+        }
+        throw new IllegalStateException("Missing hierarchy edge " + a + " -> " + b);
+    }
+
+    /*
+    Growable list of edges at one end of a vertex during contraction:
+    the other end, the weight, and the vertex skipped if it is a shortcut
+     */
+    static class Arcs {
+        int[] ends = new int[4];
+        int[] weights = new int[4];
+        int[] middles = new int[4];
+        int size;
+
+        // index of the edge to other, or -1
+        int find(int other){
+            for(int i = 0; i < size; i++)
+                if(ends[i] == other)
+                    return i;
+            return -1;
+        }
+
+        void add(int other, int weight, int middle){
+            if(size == ends.length){
+                ends = Arrays.copyOf(ends, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            ends[size] = other;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        void remove(int other){
+            int i = find(other);
+            if(i >= 0){
+                size--;
+                ends[i] = ends[size];
+                weights[i] = weights[size];
+                middles[i] = middles[size];
+            }
+        }
+    }
+
+    /*
+    Dijkstra state for witness searches, one per preprocessing thread
+     */
+    static class WitnessSearch {
+        final int[] dist;
+        final int[] stamp;
+        int generation;
+        final IndexedMinHeap heap;
+
+        WitnessSearch(int n){
+            dist = new int[n];
+            stamp = new int[n];
+            heap = new IndexedMinHeap(n);
+        }
+    }
+
+    /*
+    Contracts the vertices of a graph and assembles the hierarchy
+     */
+    static class Builder {
+        final CompactGraph graph;
+        final ForkJoinPool pool;
+        final int n;
+        final Arcs[] out;
+        final Arcs[] in;
+        final boolean[] contracted;
+        // true for the vertices being contracted in the current round
+        final boolean[] inRound;
+        final int[] priority;
+        // number of neighbors already contracted
+        final int[] deleted;
+        final int[] rank;
+        final ThreadLocal<WitnessSearch> witnesses;
+        // the edges of each vertex to more important vertices, saved as it is contracted
+        final Arcs[] upArcs;
+        final Arcs[] downArcs;
+
+        Builder(CompactGraph graph, ForkJoinPool pool){
+            this.graph = graph;
+            this.pool = pool;
+            n = graph.vertexCount();
+            out = new Arcs[n];
+            in = new Arcs[n];
+            for(int v = 0; v < n; v++){
+                out[v] = new Arcs();
+                in[v] = new Arcs();
+            }
+            for(int v = 0; v < n; v++){
+                int[] targets = graph.targets(v);
+                int[] weights = graph.weights(v);
+                for(int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++){
+                    // a loop is never on a shortest path
+                    if(targets[e] != v){
+                        out[v].add(targets[e], weights[e], -1);
+                        in[targets[e]].add(v, weights[e], -1);
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            inRound = new boolean[n];
+            priority = new int[n];
+            deleted = new int[n];
+            rank = new int[n];
+            upArcs = new Arcs[n];
+            downArcs = new Arcs[n];
+            witnesses = ThreadLocal.withInitial(() -> new WitnessSearch(n));
+        }
+
+        ContractionHierarchy build(){
+            // initial priorities only read the graph, so compute them all at once
+            parallel(IntStream.range(0, n), v -> priority[v] = computePriority(v));
+
+            int next = 0;
+            int[] round = new int[n];
+            int[][] shortcuts = new int[n][];
+            while(next < n){
+                // pick every remaining vertex that is less important than all its remaining neighbors
+                int size = 0;
+                for(int v = 0; v < n; v++)
+                    if(!contracted[v] && isLocalMinimum(v))
+                        round[size++] = v;
+                for(int i = 0; i < size; i++)
+                    inRound[round[i]] = true;
+
+                // the round is an independent set, so its witness searches can run side by side
+                final int[] members = round;
+                parallel(IntStream.range(0, size), i -> shortcuts[i] = shortcutsFor(members[i]));
+
+                // contract the round and remember whose priority may have changed
+                BitSet touched = new BitSet(n);
+                for(int i = 0; i < size; i++){
+                    int v = round[i];
+                    rank[v] = next++;
+                    contract(v, shortcuts[i], touched);
+                    shortcuts[i] = null;
+                }
+                for(int i = 0; i < size; i++)
+                    inRound[round[i]] = false;
+                parallel(touched.stream(), v -> priority[v] = computePriority(v));
+            }
+            return assemble();
+        }
+
+        // run body for every int of the stream on the preprocessing pool
+        private void parallel(IntStream ints, java.util.function.IntConsumer body){
+            try{
+                pool.submit(() -> ints.parallel().forEach(body)).get();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while contracting", e);
+            }catch(ExecutionException e){
+                if(e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException)e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        // true if v beats each remaining neighbor on priority, ties going to the lower id
+        private boolean isLocalMinimum(int v){
+            for(int pass = 0; pass < 2; pass++){
+                Arcs arcs = pass == 0 ? out[v] : in[v];
+                for(int i = 0; i < arcs.size; i++){
+                    int x = arcs.ends[i];
+                    if(priority[x] < priority[v] || (priority[x] == priority[v] && x < v))
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        // edge difference plus contracted neighbors
+        private int computePriority(int v){
+            int added = shortcutsFor(v).length / 3;
+            return added - out[v].size - in[v].size + deleted[v];
+        }
+
+        // the shortcuts contracting v needs, as {from, to, weight} triples
+        private int[] shortcutsFor(int v){
+            Arcs ins = in[v];
+            Arcs outs = out[v];
+            int[] found = new int[0];
+            int count = 0;
+            if(ins.size == 0 || outs.size == 0)
+                return found;
+            WitnessSearch ws = witnesses.get();
+            for(int i = 0; i < ins.size; i++){
+                int u = ins.ends[i];
+                int wuv = ins.weights[i];
+                // no witness longer than the longest path through v matters
+                long limit = -1;
+                for(int j = 0; j < outs.size; j++)
+                    if(outs.ends[j] != u)
+                        limit = Math.max(limit, (long)wuv + outs.weights[j]);
+                if(limit < 0) // v only leads back to u
+                    continue;
+                witnessSearch(ws, u, v, limit);
+                for(int j = 0; j < outs.size; j++){
+                    int w = outs.ends[j];
+                    if(w == u)
+                        continue;
+                    long through = (long)wuv + outs.weights[j];
+                    if(ws.stamp[w] == ws.generation && ws.dist[w] <= through)
+                        continue;
+                    if(count + 3 > found.length)
+                        found = Arrays.copyOf(found, Math.max(6, found.length * 2));
+                    found[count++] = u;
+                    found[count++] = w;
+                    found[count++] = (int)Math.min(Integer.MAX_VALUE, through);
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+
+        // bounded dijkstra from source that avoids v and the rest of the current round
+        private void witnessSearch(WitnessSearch ws, int source, int v, long limit){
+            ws.generation++;
+            if(ws.generation == 0){
+                Arrays.fill(ws.stamp, 0);
+                ws.generation = 1;
+            }
+            IndexedMinHeap heap = ws.heap;
+            heap.clear();
+            ws.stamp[source] = ws.generation;
+            ws.dist[source] = 0;
+            heap.insert(source, 0);
+            int settled = 0;
+            while(!heap.isEmpty() && settled < WITNESS_SETTLE_LIMIT){
+                if(heap.minKey() > limit)
+                    break;
+                int x = heap.pollMin();
+                settled++;
+                Arcs arcs = out[x];
+                for(int i = 0; i < arcs.size; i++){
+                    int y = arcs.ends[i];
+                    if(y == v || inRound[y])
+                        continue;
+                    long alt = (long)ws.dist[x] + arcs.weights[i];
+                    if(alt > limit)
+                        continue;
+                    if(ws.stamp[y] != ws.generation){
+                        ws.stamp[y] = ws.generation;
+                        ws.dist[y] = (int)alt;
+                        heap.insert(y, (int)alt);
+                    }else if(alt < ws.dist[y]){
+                        ws.dist[y] = (int)alt;
+                        if(heap.contains(y))
+                            heap.decreaseKey(y, (int)alt);
+                    }
+                }
+            }
+            heap.clear();
+        }
+
+        // remove v from the remaining graph, keeping its edges for the hierarchy and adding its shortcuts
+        private void contract(int v, int[] shortcuts, BitSet touched){
+            contracted[v] = true;
+            upArcs[v] = out[v];
+            downArcs[v] = in[v];
+            for(int i = 0; i < out[v].size; i++){
+                int w = out[v].ends[i];
+                in[w].remove(v);
+                deleted[w]++;
+                touched.set(w);
+            }
+            for(int i = 0; i < in[v].size; i++){
+                int u = in[v].ends[i];
+                out[u].remove(v);
+                deleted[u]++;
+                touched.set(u);
+            }
+            out[v] = null;
+            in[v] = null;
+            for(int i = 0; i < shortcuts.length; i += 3)
+                addShortcut(shortcuts[i], shortcuts[i + 1], shortcuts[i + 2], v);
+        }
+
+        // add u -> w skipping v, or shorten an existing u -> w
+        private void addShortcut(int u, int w, int weight, int v){
+            int i = out[u].find(w);
+            if(i < 0){
+                out[u].add(w, weight, v);
+                in[w].add(u, weight, v);
+            }else if(weight < out[u].weights[i]){
+                out[u].weights[i] = weight;
+                out[u].middles[i] = v;
+                int j = in[w].find(u);
+                in[w].weights[j] = weight;
+                in[w].middles[j] = v;
+            }
+        }
+
+        // flatten the saved edges into the upward rows of the hierarchy
+        private ContractionHierarchy assemble(){
+            int[] upOffsets = new int[n + 1];
+            int[] downOffsets = new int[n + 1];
+            for(int v = 0; v < n; v++){
+                upOffsets[v + 1] = upOffsets[v] + upArcs[v].size;
+                downOffsets[v + 1] = downOffsets[v] + downArcs[v].size;
+            }
+            int[] upTargets = new int[upOffsets[n]];
+            int[] upWeights = new int[upOffsets[n]];
+            int[] upMiddle = new int[upOffsets[n]];
+            int[] downTargets = new int[downOffsets[n]];
+            int[] downWeights = new int[downOffsets[n]];
+            int[] downMiddle = new int[downOffsets[n]];
+            for(int v = 0; v < n; v++){
+                Arcs a = upArcs[v];
+                System.arraycopy(a.ends, 0, upTargets, upOffsets[v], a.size);
+                System.arraycopy(a.weights, 0, upWeights, upOffsets[v], a.size);
+                System.arraycopy(a.middles, 0, upMiddle, upOffsets[v], a.size);
+                a = downArcs[v];
+                System.arraycopy(a.ends, 0, downTargets, downOffsets[v], a.size);
+                System.arraycopy(a.weights, 0, downWeights, downOffsets[v], a.size);
+                System.arraycopy(a.middles, 0, downMiddle, downOffsets[v], a.size);
+            }
+            CompactGraph up = new CompactGraph(graph, upOffsets, upTargets, upWeights);
+            CompactGraph down = new CompactGraph(graph, downOffsets, downTargets, downWeights);
+            return new ContractionHierarchy(graph, rank, up, upMiddle, down, downMiddle);
+        }
+    }
+}
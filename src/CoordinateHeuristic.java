@@ -0,0 +1,94 @@
+import java.util.*;
+
+/**
+ * A* heuristic that estimates the remaining cost from the straight-line
+ * distance between vertex coordinates, either great-circle distance between
+ * {latitude, longitude} pairs in degrees or Euclidean distance between {x, y} pairs.
+ * Distances are turned into costs with the smallest cost per unit of distance
+ * over all edges of the graph, so the estimate can never exceed the cost of a
+ * real path and the heuristic is admissible whatever units the weights are in.
+ */
+public class CoordinateHeuristic implements Heuristic {
+    // mean radius of the earth in kilometers
+    private static final double EARTH_RADIUS = 6371.0088;
+
+    private final Map<Vertex, double[]> coordinates;
+    private final boolean greatCircle;
+    // smallest edge weight per unit of distance in the graph
+    private final double scale;
+
+    /**
+     * Create a heuristic from great-circle distances
+     * @param g the graph that will be searched
+     * @param coordinates {latitude, longitude} in degrees for every vertex of g
+     * @return the heuristic
+     * @throws IllegalArgumentException if a vertex of g has no coordinates
+     */
+    public static CoordinateHeuristic greatCircle(Graph g, Map<Vertex, double[]> coordinates){
+        return new CoordinateHeuristic(g, coordinates, true);
+    }
+
+    /**
+     * Create a heuristic from Euclidean distances
+     * @param g the graph that will be searched
+     * @param coordinates {x, y} for every vertex of g
+     * @return the heuristic
+     * @throws IllegalArgumentException if a vertex of g has no coordinates
+     */
+    public static CoordinateHeuristic euclidean(Graph g, Map<Vertex, double[]> coordinates){
+        return new CoordinateHeuristic(g, coordinates, false);
+    }
+
+    private CoordinateHeuristic(Graph g, Map<Vertex, double[]> coordinates, boolean greatCircle){
+        if(g == null || coordinates == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        // an edge between vertices without coordinates could be cheaper than any estimate
+        for(Vertex v: g.vertices()){
+            double[] c = coordinates.get(v);
+            if(c == null || c.length != 2)
+                throw new IllegalArgumentException("No coordinates for vertex " + v);
+        }
+        this.coordinates = new HashMap<>(coordinates);
+        this.greatCircle = greatCircle;
+
+        // the estimate is distance times the cheapest cost per unit of distance of any edge,
+        // so by the triangle inequality it is at most the cost of any path
+        double min = Double.POSITIVE_INFINITY;
+        for(Edge e: g.edges()){
+            double d = distance(coordinates.get(e.getSource()), coordinates.get(e.getDestination()));
+            if(d > 0)
+                min = Math.min(min, e.getWeight() / d);
+        }
+        scale = min == Double.POSITIVE_INFINITY ? 0 : min;
+    }
+
+    /**
+     * Estimate the cost of the cheapest path from v to goal
+     * @param v the vertex to estimate from
+     * @param goal the destination of the search
+     * @return a lower bound on the cost from v to goal, or 0 if either has no coordinates
+     */
+    public int estimate(Vertex v, Vertex goal){
+        double[] from = coordinates.get(v);
+        double[] to = coordinates.get(goal);
+        if(from == null || to == null)
+            return 0;
+        // shave off a little so rounding error can't push the estimate past a real path
+        double cost = scale * distance(from, to) * (1 - 1e-9);
+        return cost >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)cost;
+    }
+
+    // straight-line distance between two points in the chosen geometry
+    private double distance(double[] p, double[] q){
+        if(!greatCircle)
+            return Math.hypot(p[0] - q[0], p[1] - q[1]);
+        // haversine formula
+        double lat1 = Math.toRadians(p[0]);
+        double lat2 = Math.toRadians(q[0]);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(q[1] - p[1]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+}
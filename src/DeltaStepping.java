@@ -0,0 +1,180 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel single-source shortest paths by delta-stepping.
+ * Vertices wait in buckets of width delta by tentative distance. The lowest
+ * bucket is emptied in rounds that relax the light edges (weight at most delta)
+ * of all its vertices in parallel, since those can only refill the same
+ * bucket; heavy edges are relaxed once, in parallel, when the bucket is done.
+ * Distances and parents live in one array of longs updated with compare and
+ * swap, so a parent always matches the distance it was found with.
+ * The distances are the ones Dijkstra's algorithm finds. Searches run on the
+ * common ForkJoinPool.
+ */
+public class DeltaStepping {
+    // frontiers smaller than this are relaxed on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1024;
+    // packed entry of a vertex no path reaches yet: infinite distance, no parent
+    private static final long UNREACHED = ((long)Integer.MAX_VALUE << 32) | 0xffffffffL;
+
+    private final CompactGraph graph;
+    private final int delta;
+
+    /**
+     * Prepare delta-stepping on g with delta set to the mean edge weight
+     * @param g the graph to search
+     */
+    public DeltaStepping(Graph g){
+        this(g, -1);
+    }
+
+    /**
+     * Prepare delta-stepping on g
+     * @param g the graph to search
+     * @param delta the bucket width, or -1 for the mean edge weight
+     * @throws IllegalArgumentException if delta is 0 or less than -1
+     */
+    public DeltaStepping(Graph g, int delta){
+        if(g == null)
+            throw new IllegalArgumentException("Graph can't be null");
+        if(delta == 0 || delta < -1)
+            throw new IllegalArgumentException("Delta must be positive");
+        graph = CompactGraph.of(g);
+        if(delta == -1){
+            long total = 0;
+            for(int v = 0; v < graph.vertexCount(); v++)
+                for(int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++)
+                    total += graph.weights(v)[e];
+            delta = (int)Math.max(1, graph.edgeCount() == 0 ? 1 : total / graph.edgeCount());
+        }
+        this.delta = delta;
+    }
+
+    /**
+     * Return the bucket width
+     * @return delta
+     */
+    public int delta(){
+        return delta;
+    }
+
+    /**
+     * Returns the shortest paths from source to every vertex of the graph
+     * @param source the starting vertex
+     * @return the shortest path tree rooted at source
+     * @throws IllegalArgumentException if source does not exist.
+     */
+    public ShortestPathTree shortestPathTree(Vertex source){
+        int s = graph.indexOf(source);
+        if(s < 0)
+            throw new IllegalArgumentException("Vertex does not exist in the graph");
+        int n = graph.vertexCount();
+        AtomicLongArray entry = new AtomicLongArray(n);
+        for(int v = 0; v < n; v++)
+            entry.set(v, UNREACHED);
+        entry.set(s, pack(0, -1));
+
+        // bucket index --> vertices that were put there, possibly since moved lower
+        TreeMap<Integer, IntList> buckets = new TreeMap<>();
+        IntList first = new IntList();
+        first.add(s);
+        buckets.put(0, first);
+        // mark[v] == round means v is already in this round's frontier
+        int[] mark = new int[n];
+        // settled[v] == phase means v was taken from this phase's bucket
+        int[] settled = new int[n];
+        int round = 0;
+        int phase = 0;
+
+        while(!buckets.isEmpty()){
+            int i = buckets.firstKey();
+            phase++;
+            IntList removed = new IntList();
+            // rounds of light edges until bucket i stops refilling
+            while(buckets.containsKey(i)){
+                IntList candidates = buckets.remove(i);
+                round++;
+                IntList frontier = new IntList(candidates.size());
+                for(int k = 0; k < candidates.size(); k++){
+                    int v = candidates.get(k);
+                    // skip repeats and vertices whose distance has since dropped below bucket i
+                    if(mark[v] != round && distance(entry.get(v)) / delta == i){
+                        mark[v] = round;
+                        frontier.add(v);
+                        if(settled[v] != phase){
+                            settled[v] = phase;
+                            removed.add(v);
+                        }
+                    }
+                }
+                file(buckets, entry, relax(frontier, entry, true));
+            }
+            // every vertex of bucket i is final now, so relax its heavy edges once
+            file(buckets, entry, relax(removed, entry, false));
+        }
+
+        int[] dist = new int[n];
+        int[] parent = new int[n];
+        for(int v = 0; v < n; v++){
+            long e = entry.get(v);
+            dist[v] = e == UNREACHED ? -1 : distance(e);
+            parent[v] = e == UNREACHED ? -1 : (int)e;
+        }
+        return new ShortestPathTree(graph, s, dist, parent);
+    }
+
+    // relax the light or heavy edges of the given vertices, in parallel if there are enough of them
+    // returns the vertices whose distance went down
+    private IntList relax(IntList vertices, AtomicLongArray entry, boolean light){
+        IntStream range = IntStream.range(0, vertices.size());
+        if(vertices.size() >= PARALLEL_THRESHOLD)
+            range = range.parallel();
+        return range.collect(IntList::new, (improved, k) -> {
+            int u = vertices.get(k);
+            int du = distance(entry.get(u));
+            int[] targets = graph.targets(u);
+            int[] weights = graph.weights(u);
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++){
+                if((weights[e] <= delta) != light)
+                    continue;
+                int v = targets[e];
+                long alt = (long)du + weights[e];
+                // lower v's entry unless someone already found a path at least as short
+                while(true){
+                    long current = entry.get(v);
+                    if(alt >= distance(current))
+                        break;
+                    if(entry.compareAndSet(v, current, pack((int)alt, u))){
+                        improved.add(v);
+                        break;
+                    }
+                }
+            }
+        }, IntList::addAll);
+    }
+
+    // put every improved vertex into the bucket of its current distance
+    private void file(TreeMap<Integer, IntList> buckets, AtomicLongArray entry, IntList improved){
+        for(int k = 0; k < improved.size(); k++){
+            int v = improved.get(k);
+            int b = distance(entry.get(v)) / delta;
+            IntList bucket = buckets.get(b);
+            if(bucket == null){
+                bucket = new IntList();
+                buckets.put(b, bucket);
+            }
+            bucket.add(v);
+        }
+    }
+
+    // distance in the high half, parent in the low half, so comparing entries compares distances
+    private static long pack(int dist, int parent){
+        return ((long)dist << 32) | (parent & 0xffffffffL);
+    }
+
+    private static int distance(long entry){
+        return (int)(entry >>> 32);
+    }
+}
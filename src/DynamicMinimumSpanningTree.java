@@ -0,0 +1,268 @@
+import java.util.*;
+
+/**
+ * A minimum spanning forest of an MSTGraph that stays minimal while the
+ * graph changes. Obtained from MSTGraph.spanningTree, the forest is updated
+ * on every addEdge, removeEdge and updateWeight instead of being computed
+ * again. Its edges live in a link-cut tree, so a new or cheaper edge only
+ * has to be compared with the dearest edge on the tree path between its
+ * ends, replacing that edge if it is cheaper, in O(log n) amortized time.
+ * A tree edge that disappears or gets dearer is cut out and the cheapest
+ * non-tree edge that joins the two halves again, if any, takes its place.
+ * That search checks each non-tree edge once, in O(log n) per edge.
+ * Not thread-safe, like the graph it follows.
+ */
+public class DynamicMinimumSpanningTree {
+    // vertex --> vertex id; edge slot s is node n + s of the link-cut tree
+    private final HashMap<Vertex, Integer> ids;
+    private final int n;
+    private final LinkCutTree forest;
+
+    // the edge in each slot, or null for a free slot
+    private Edge[] edge;
+    private int[] src;
+    private int[] dst;
+    private boolean[] inTree;
+    private int slots;
+    private final IntList free = new IntList();
+    // undirected pair of vertex ids --> slot of the edge joining them
+    private final HashMap<Long, Integer> slotOf = new HashMap<>();
+
+    private final Set<Edge> treeEdges = new HashSet<>();
+    private long weight;
+
+    /**
+     * Creates the forest of a graph from its current edges
+     * @param g the graph, whose edges are treated as undirected
+     */
+    DynamicMinimumSpanningTree(Graph g){
+        ids = new HashMap<>();
+        for(Vertex v: g.vertices())
+            ids.putIfAbsent(v, ids.size());
+        n = ids.size();
+        int m = Math.max(16, g.edges().size());
+        edge = new Edge[m];
+        src = new int[m];
+        dst = new int[m];
+        inTree = new boolean[m];
+        forest = new LinkCutTree(n + m);
+        Set<Edge> initial = MinimumSpanningTree.of(g);
+        IntList chosen = new IntList(initial.size());
+        for(Edge e: g.edges()){
+            int s = store(e);
+            if(initial.contains(e))
+                chosen.add(s);
+        }
+        build(chosen);
+    }
+
+    // hang the forest edges in the given slots into the link-cut tree, tree by tree from the top
+    private void build(IntList chosen){
+        int[] offsets = new int[n + 1];
+        for(int i = 0; i < chosen.size(); i++){
+            offsets[src[chosen.get(i)] + 1]++;
+            offsets[dst[chosen.get(i)] + 1]++;
+        }
+        for(int v = 0; v < n; v++)
+            offsets[v + 1] += offsets[v];
+        int[] incident = new int[2 * chosen.size()];
+        int[] next = Arrays.copyOf(offsets, n);
+        for(int i = 0; i < chosen.size(); i++){
+            int s = chosen.get(i);
+            incident[next[src[s]]++] = s;
+            incident[next[dst[s]]++] = s;
+        }
+        boolean[] seen = new boolean[n];
+        int[] queue = new int[n];
+        for(int root = 0; root < n; root++){
+            if(seen[root])
+                continue;
+            seen[root] = true;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            while(head < tail){
+                int u = queue[head++];
+                for(int i = offsets[u]; i < offsets[u + 1]; i++){
+                    int s = incident[i];
+                    int v = src[s] == u ? dst[s] : src[s];
+                    if(seen[v])
+                        continue;
+                    seen[v] = true;
+                    queue[tail++] = v;
+                    forest.setValue(n + s, edge[s].getWeight());
+                    forest.attach(n + s, u);
+                    forest.attach(v, n + s);
+                    inTree[s] = true;
+                    treeEdges.add(edge[s]);
+                    weight += edge[s].getWeight();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the edges of the forest. The set follows later changes to the graph.
+     * @return an unmodifiable view of the forest edges
+     */
+    public Set<Edge> edges(){
+        return Collections.unmodifiableSet(treeEdges);
+    }
+
+    /**
+     * Return the total weight of the forest
+     * @return the sum of the forest edge weights
+     */
+    public long weight(){
+        return weight;
+    }
+
+    /**
+     * Test whether two vertices are joined by a path in the graph
+     * @param a one vertex
+     * @param b another vertex
+     * @return true if a and b are in one tree of the forest
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public boolean connected(Vertex a, Vertex b){
+        return forest.connected(id(a), id(b));
+    }
+
+    /**
+     * Update the forest after e was added to the graph
+     * @param e the new edge
+     */
+    void edgeAdded(Edge e){
+        offer(store(e));
+    }
+
+    /**
+     * Update the forest after the edge between a and b was removed
+     * @param a one end
+     * @param b the other end
+     */
+    void edgeRemoved(Vertex a, Vertex b){
+        int s = slotOf.remove(pair(id(a), id(b)));
+        boolean wasTree = inTree[s];
+        if(wasTree)
+            unlink(s);
+        edge[s] = null;
+        free.add(s);
+        if(wasTree)
+            reconnect();
+    }
+
+    /**
+     * Update the forest after the edge between a and b got a new weight
+     * @param e the edge with its new weight
+     * @param oldWeight the weight it had before
+     */
+    void weightChanged(Edge e, int oldWeight){
+        int s = slotOf.get(pair(id(e.getSource()), id(e.getDestination())));
+        int newWeight = e.getWeight();
+        if(inTree[s]){
+            treeEdges.remove(edge[s]);
+            treeEdges.add(e);
+            weight += newWeight - oldWeight;
+            edge[s] = e;
+            forest.setValue(n + s, newWeight);
+            // a dearer tree edge may now lose to an edge that joins its two sides
+            if(newWeight > oldWeight){
+                unlink(s);
+                reconnect();
+            }
+        }else{
+            edge[s] = e;
+            if(newWeight < oldWeight)
+                offer(s);
+        }
+    }
+
+    // put e in a free slot
+    private int store(Edge e){
+        int s;
+        if(!free.isEmpty()){
+            s = free.removeLast();
+        }else{
+            s = slots++;
+            if(s == edge.length){
+                edge = Arrays.copyOf(edge, s * 2);
+                src = Arrays.copyOf(src, s * 2);
+                dst = Arrays.copyOf(dst, s * 2);
+                inTree = Arrays.copyOf(inTree, s * 2);
+                forest.grow(n + s * 2);
+            }
+        }
+        edge[s] = e;
+        src[s] = id(e.getSource());
+        dst[s] = id(e.getDestination());
+        inTree[s] = false;
+        slotOf.put(pair(src[s], dst[s]), s);
+        return s;
+    }
+
+    // add the edge in slot s to the forest if it joins two trees or beats the dearest edge on its cycle
+    private void offer(int s){
+        int a = src[s];
+        int b = dst[s];
+        if(a == b)
+            return;
+        if(!forest.connected(a, b)){
+            link(s);
+            return;
+        }
+        int dearest = forest.pathMax(a, b) - n;
+        if(edge[dearest].getWeight() > edge[s].getWeight()){
+            unlink(dearest);
+            link(s);
+        }
+    }
+
+    // join the two trees a cut just split apart by the cheapest edge between them
+    private void reconnect(){
+        int best = -1;
+        for(int s = 0; s < slots; s++){
+            if(edge[s] == null || inTree[s] || src[s] == dst[s])
+                continue;
+            if(best != -1 && edge[s].getWeight() >= edge[best].getWeight())
+                continue;
+            // every non-tree edge joined one tree before the cut, so it crosses if its ends are apart
+            if(!forest.connected(src[s], dst[s]))
+                best = s;
+        }
+        if(best != -1)
+            link(best);
+    }
+
+    private void link(int s){
+        int node = n + s;
+        forest.setValue(node, edge[s].getWeight());
+        forest.link(src[s], node);
+        forest.link(node, dst[s]);
+        inTree[s] = true;
+        treeEdges.add(edge[s]);
+        weight += edge[s].getWeight();
+    }
+
+    private void unlink(int s){
+        int node = n + s;
+        forest.cut(src[s], node);
+        forest.cut(node, dst[s]);
+        forest.setValue(node, -1);
+        inTree[s] = false;
+        treeEdges.remove(edge[s]);
+        weight -= edge[s].getWeight();
+    }
+
+    private static long pair(int a, int b){
+        return a < b ? ((long)a << 32) | b : ((long)b << 32) | a;
+    }
+
+    // helper to translate a vertex into its id
+    private int id(Vertex v){
+        Integer id = ids.get(v);
+        if(id == null)
+            throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
+        return id;
+    }
+}
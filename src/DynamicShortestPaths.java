@@ -0,0 +1,239 @@
+import java.util.*;
+
+/**
+ * Shortest paths from one source of a MyGraph that stay correct while the
+ * graph changes. Registered with MyGraph.registerSource, the tree is repaired
+ * on every addEdge, removeEdge and updateWeight instead of being searched again:
+ * an edge that gets cheaper runs Dijkstra's algorithm from its far end over the
+ * vertices it improves, and a tree edge that gets dearer or disappears detaches
+ * the subtree below it, seeds each detached vertex with its best edge from the
+ * rest of the tree and runs Dijkstra's algorithm inside the subtree.
+ * Either way the work is proportional to the vertices whose paths change.
+ * Not thread-safe, like the graph it follows.
+ */
+public class DynamicShortestPaths {
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final MyGraph graph;
+    // vertex numbering, which MyGraph keeps across changes
+    private final IndexedGraph ids;
+    private final int source;
+    // dist[v] is the distance from the source to v, or INFINITY if v is unreachable
+    private final int[] dist;
+    // parent[v] is the vertex before v on its shortest path, or -1 for the source and unreachable vertices
+    private final int[] parent;
+    private final IndexedMinHeap heap;
+    // stamp[v] == generation marks v as detached during the current repair
+    private final int[] stamp;
+    private int generation;
+    private final IntList detached = new IntList();
+
+    /**
+     * Creates the tree of a source from the current state of the graph
+     * @param graph the graph to follow
+     * @param ids the vertex numbering of the graph
+     * @param source the id of the source
+     * @param tree the shortest path tree of the source in the current graph
+     */
+    DynamicShortestPaths(MyGraph graph, IndexedGraph ids, int source, ShortestPathTree tree){
+        this.graph = graph;
+        this.ids = ids;
+        this.source = source;
+        int n = ids.vertexCount();
+        dist = new int[n];
+        parent = new int[n];
+        for(int v = 0; v < n; v++){
+            dist[v] = tree.distance(v) < 0 ? INFINITY : tree.distance(v);
+            parent[v] = tree.parent(v);
+        }
+        heap = new IndexedMinHeap(n);
+        stamp = new int[n];
+    }
+
+    /**
+     * Return the source of this tree
+     * @return the source vertex
+     */
+    public Vertex source(){
+        return ids.vertexAt(source);
+    }
+
+    /**
+     * Return the graph this tree follows
+     * @return the graph
+     */
+    public MyGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Return the cost of the shortest path from the source to v
+     * @param v a vertex of the graph
+     * @return the cost, or -1 if v is not reachable from the source
+     * @throws IllegalArgumentException if v does not exist.
+     */
+    public int distanceTo(Vertex v){
+        int d = dist[id(v)];
+        return d == INFINITY ? -1 : d;
+    }
+
+    /**
+     * Return the vertex before v on the shortest path from the source
+     * @param v a vertex of the graph
+     * @return the parent of v, or null if v is the source or not reachable
+     * @throws IllegalArgumentException if v does not exist.
+     */
+    public Vertex parentOf(Vertex v){
+        int p = parent[id(v)];
+        return p < 0 ? null : ids.vertexAt(p);
+    }
+
+    /**
+     * Returns the shortest path from the source to b, or null if there is no such path.
+     * @param b the destination vertex
+     * @return a Path from the source (first) to b (last) and its cost, or null if b is not reachable
+     * @throws IllegalArgumentException if b does not exist.
+     */
+    public Path pathTo(Vertex b){
+        int target = id(b);
+        if(dist[target] == INFINITY)
+            return null;
+        // walk the parents in place instead of copying the whole tree
+        int hops = 1;
+        for(int v = parent[target]; v != -1; v = parent[v])
+            hops++;
+        Vertex[] path = new Vertex[hops];
+        for(int v = target; v != -1; v = parent[v])
+            path[--hops] = ids.vertexAt(v);
+        return new Path(Arrays.asList(path), dist[target]);
+    }
+
+    /**
+     * Copy the current paths into a tree that no longer follows the graph
+     * @return the shortest path tree as it is now
+     */
+    public ShortestPathTree tree(){
+        int n = dist.length;
+        int[] d = new int[n];
+        for(int v = 0; v < n; v++)
+            d[v] = dist[v] == INFINITY ? -1 : dist[v];
+        return new ShortestPathTree(ids, source, d, parent.clone());
+    }
+
+    /**
+     * Repair the tree after the edge a -> b has changed. The graph already
+     * holds the new edge when this is called.
+     * @param a the source of the edge
+     * @param b the destination of the edge
+     * @param oldWeight the weight before the change, or -1 if the edge is new
+     * @param newWeight the weight after the change, or -1 if the edge was removed
+     */
+    void edgeChanged(Vertex a, Vertex b, int oldWeight, int newWeight){
+        int u = ids.indexOf(a);
+        int v = ids.indexOf(b);
+        if(newWeight >= 0 && (oldWeight < 0 || newWeight < oldWeight)){
+            // a cheaper way into v may improve v and everything reached through it
+            if(dist[u] != INFINITY && (long)dist[u] + newWeight < dist[v]){
+                dist[v] = dist[u] + newWeight;
+                parent[v] = u;
+                heap.insert(v, dist[v]);
+                improve();
+            }
+        }else if(oldWeight >= 0 && parent[v] == u && newWeight != oldWeight){
+            // only paths that used the edge can get longer
+            reattach(v);
+        }
+    }
+
+    // run dijkstra from the vertices in the heap, lowering every distance they improve
+    private void improve(){
+        GraphCore out = graph.core();
+        while(!heap.isEmpty()){
+            int u = heap.pollMin();
+            int[] targets = out.targets(u);
+            int[] weights = out.weights(u);
+            for(int e = 0, end = out.degree(u); e < end; e++){
+                int v = targets[e];
+                long alt = (long)dist[u] + weights[e];
+                if(alt < dist[v]){
+                    dist[v] = (int)alt;
+                    parent[v] = u;
+                    if(heap.contains(v))
+                        heap.decreaseKey(v, dist[v]);
+                    else
+                        heap.insert(v, dist[v]);
+                }
+            }
+        }
+    }
+
+    // find new paths for the subtree rooted at root, whose edge from its parent got dearer or went away
+    private void reattach(int root){
+        GraphCore out = graph.core();
+        GraphCore in = graph.reverseCore();
+        generation++;
+        detached.clear();
+        detached.add(root);
+        stamp[root] = generation;
+        // the subtree is every vertex whose parent chain passes through root
+        for(int i = 0; i < detached.size(); i++){
+            int u = detached.get(i);
+            int[] targets = out.targets(u);
+            for(int e = 0, end = out.degree(u); e < end; e++){
+                int v = targets[e];
+                if(parent[v] == u && stamp[v] != generation){
+                    stamp[v] = generation;
+                    detached.add(v);
+                }
+            }
+        }
+        for(int i = 0; i < detached.size(); i++){
+            dist[detached.get(i)] = INFINITY;
+            parent[detached.get(i)] = -1;
+        }
+        // the best way into each detached vertex from the part of the tree that stayed
+        for(int i = 0; i < detached.size(); i++){
+            int v = detached.get(i);
+            long best = INFINITY;
+            int[] sources = in.targets(v);
+            int[] weights = in.weights(v);
+            for(int e = 0, end = in.degree(v); e < end; e++){
+                int u = sources[e];
+                if(stamp[u] != generation && dist[u] != INFINITY && (long)dist[u] + weights[e] < best){
+                    best = (long)dist[u] + weights[e];
+                    parent[v] = u;
+                }
+            }
+            if(best < INFINITY){
+                dist[v] = (int)best;
+                heap.insert(v, dist[v]);
+            }
+        }
+        // dijkstra inside the subtree, vertices outside it cannot get shorter paths
+        while(!heap.isEmpty()){
+            int u = heap.pollMin();
+            int[] targets = out.targets(u);
+            int[] weights = out.weights(u);
+            for(int e = 0, end = out.degree(u); e < end; e++){
+                int v = targets[e];
+                long alt = (long)dist[u] + weights[e];
+                if(stamp[v] == generation && alt < dist[v]){
+                    dist[v] = (int)alt;
+                    parent[v] = u;
+                    if(heap.contains(v))
+                        heap.decreaseKey(v, dist[v]);
+                    else
+                        heap.insert(v, dist[v]);
+                }
+            }
+        }
+    }
+
+    // helper to translate a vertex into its id
+    private int id(Vertex v){
+        int id = ids.indexOf(v);
+        if(id < 0)
+            throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
+        return id;
+    }
+}
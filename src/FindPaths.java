@@ -7,13 +7,43 @@ import java.io.*;
  */
 
 public class FindPaths {
+	public static final int LANDMARKS = 16;
+
+	public static final int SERVER_CONNECTIONS = 64;
+
 	public static void main(String[] args) {
-		if(args.length != 2) {
-			System.err.println("USAGE: java Paths <vertex_file> <edge_file>");
+		int port = -1;
+		if(args.length >= 2 && args[0].equals("--serve")) {
+			try {
+				port = Integer.parseInt(args[1]);
+			} catch(NumberFormatException e1) {
+				port = -2;
+			}
+			args = Arrays.copyOfRange(args, 2, args.length);
+		}
+		if((args.length != 2 && args.length != 3) || port == -2) {
+			System.err.println("USAGE: java Paths [--serve <port>] <vertex_file> <edge_file> [<coordinate_file>]");
 			System.exit(1);
 		}
 
-		MyGraph g = readGraph(args[0],args[1]);
+		MyGraph g = null;
+		try {
+			g = readGraph(args[0],args[1]);
+		} catch(FileNotFoundException e1) {
+			System.err.println(e1.getMessage());
+			System.exit(2);
+		} catch(IOException | RuntimeException e1) {
+			System.err.println("EDGE FILE FORMAT INCORRECT: "+e1.getMessage());
+			System.exit(3);
+		}
+		useLandmarks(g, new File(args[1] + ".landmarks"));
+		Heuristic h = null;
+		if(args.length == 3)
+			h = CoordinateHeuristic.greatCircle(g, readCoordinates(args[2]));
+		if(port >= 0) {
+			serve(g, h, port);
+			return;
+		}
 
 		Scanner console = new Scanner(System.in);
 		Collection<Vertex> v = g.vertices();
@@ -36,7 +66,7 @@ public class FindPaths {
 			}
 
 			// call shortestPath passing start and end vertex
-            Path shortest = g.shortestPath(a, b);
+            Path shortest = g.shortestPath(a, b, h);
             System.out.println("Shortest path from " + a + " to " + b + ":");
             if(shortest == null){
                 System.out.println("does not exist");
@@ -52,39 +82,124 @@ public class FindPaths {
 		}
 	}
 
-	public static MyGraph readGraph(String f1, String f2) {
-		Scanner s = null;
+	/**
+	 * Serve shortest path queries on a local port until the process is killed
+	 * @param g the graph
+	 * @param h the heuristic for queries, or null
+	 * @param port the port to listen on
+	 */
+	public static void serve(MyGraph g, Heuristic h, int port) {
+		try(PathServer server = new PathServer(g, h, port, SERVER_CONNECTIONS)) {
+			System.out.println("Serving shortest paths on port "+server.port());
+			server.serve();
+		} catch(IOException e1) {
+			System.err.println("SERVER FAILED: "+e1.getMessage());
+			System.exit(4);
+		}
+	}
+
+	/**
+	 * Read a graph from a vertex file and an edge file, opening the binary
+	 * snapshot kept next to the edge file instead when it was written from
+	 * these same files, and writing a new snapshot otherwise. The files a
+	 * snapshot came from are recorded in a small text file beside it.
+	 * @param f1 the vertex file
+	 * @param f2 the edge file
+	 * @return the graph
+	 * @throws IOException if a file is missing, unreadable or not in the graph format
+	 */
+	public static MyGraph readGraph(String f1, String f2) throws IOException {
+		File snapshot = new File(f2 + ".snapshot");
+		File source = new File(f2 + ".snapshot.source");
+		String key = sourceKey(f1) + "\n" + sourceKey(f2);
+		if(key.equals(readSource(source))) {
+			try {
+				return MyGraph.openSnapshot(snapshot);
+			} catch(IOException e1) {
+				// fall through and parse the text files
+			}
+		}
+		MyGraph g = GraphLoader.readMyGraph(f1, f2);
 		try {
-			s = new Scanner(new File(f1));
-		} catch(FileNotFoundException e1) {
-			System.err.println("FILE NOT FOUND: "+f1);
-			System.exit(2);
+			// drop the old record first so a half written snapshot is never trusted
+			source.delete();
+			g.saveSnapshot(snapshot);
+			try(Writer out = new OutputStreamWriter(new FileOutputStream(source), "UTF-8")) {
+				out.write(key);
+			}
+		} catch(IOException e2) {
+			System.err.println("COULD NOT SAVE SNAPSHOT: "+snapshot);
+		}
+		return g;
+	}
+
+	// the path, size and modification time of a file, which change whenever the file is replaced or edited
+	private static String sourceKey(String f) throws IOException {
+		File file = new File(f);
+		return file.getCanonicalPath()+"\t"+file.length()+"\t"+file.lastModified();
+	}
+
+	// the record of the files a snapshot came from, or null if there is none
+	private static String readSource(File f) {
+		try(Reader in = new InputStreamReader(new FileInputStream(f), "UTF-8")) {
+			StringBuilder sb = new StringBuilder();
+			char[] buffer = new char[256];
+			for(int len; (len = in.read(buffer)) != -1; )
+				sb.append(buffer, 0, len);
+			return sb.toString();
+		} catch(IOException e1) {
+			return null;
 		}
+	}
 
-		Collection<Vertex> v = new ArrayList<Vertex>();
-		while(s.hasNext())
-			v.add(new Vertex(s.next()));
+	/**
+	 * Load the landmark tables for g from f, or compute them and save them to f
+	 * if f is missing or belongs to a different graph
+	 * @param g the graph
+	 * @param f the landmark file kept next to the edge file
+	 */
+	public static void useLandmarks(MyGraph g, File f) {
+		try {
+			g.loadLandmarks(f);
+			return;
+		} catch(IOException e1) {
+			// fall through and preprocess
+		}
+		g.preprocessLandmarks(LANDMARKS);
+		try {
+			g.saveLandmarks(f);
+		} catch(IOException e2) {
+			System.err.println("COULD NOT SAVE LANDMARKS: "+f);
+		}
+	}
 
+	/**
+	 * Read vertex coordinates for A* search, one vertex per line as
+	 * label latitude longitude
+	 * @param f the coordinate file
+	 * @return map from each vertex to {latitude, longitude} in degrees
+	 */
+	public static Map<Vertex, double[]> readCoordinates(String f) {
+		Scanner s = null;
 		try {
-			s = new Scanner(new File(f2));
+			s = new Scanner(new File(f));
 		} catch(FileNotFoundException e1) {
-			System.err.println("FILE NOT FOUND: "+f2);
+			System.err.println("FILE NOT FOUND: "+f);
 			System.exit(2);
 		}
 
-		Collection<Edge> e = new ArrayList<Edge>();
+		Map<Vertex, double[]> c = new HashMap<Vertex, double[]>();
 		while(s.hasNext()) {
 			try {
 				Vertex a = new Vertex(s.next());
-				Vertex b = new Vertex(s.next());
-				int w = s.nextInt();
-				e.add(new Edge(a,b,w));
-			} catch (NoSuchElementException e2) {
-				System.err.println("EDGE FILE FORMAT INCORRECT");
+				double lat = Double.parseDouble(s.next());
+				double lon = Double.parseDouble(s.next());
+				c.put(a, new double[]{lat, lon});
+			} catch (NoSuchElementException | NumberFormatException e2) {
+				System.err.println("COORDINATE FILE FORMAT INCORRECT");
 				System.exit(3);
 			}
 		}
-
-		return new MyGraph(v,e);
+		return c;
 	}
 }
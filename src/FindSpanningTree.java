@@ -13,53 +13,37 @@ public class FindSpanningTree {
             System.exit(1);
         }
 
-        MSTGraph g = readGraph(args[0],args[1]);
+        MSTGraph g = null;
+        try {
+            g = readGraph(args[0],args[1]);
+        } catch(FileNotFoundException e1) {
+            System.err.println(e1.getMessage());
+            System.exit(2);
+        } catch(IOException | RuntimeException e1) {
+            System.err.println("EDGE FILE FORMAT INCORRECT: "+e1.getMessage());
+            System.exit(3);
+        }
 
         Scanner console = new Scanner(System.in);
         Collection<Vertex> v = g.vertices();
         Collection<Edge> e = g.edges();
         System.out.println("Vertices are "+v);
         System.out.println("Edges are "+e);
-        Set<Edge> span = g.kruskalMST();
+        Set<Edge> span = g.minimumSpanningTree();
         for(Edge ed : span){
             System.out.print(ed + " ");
         }
 
     }
 
-    public static MSTGraph readGraph(String f1, String f2) {
-        Scanner s = null;
-        try {
-            s = new Scanner(new File(f1));
-        } catch(FileNotFoundException e1) {
-            System.err.println("FILE NOT FOUND: "+f1);
-            System.exit(2);
-        }
-
-        Collection<Vertex> v = new ArrayList<Vertex>();
-        while(s.hasNext())
-            v.add(new Vertex(s.next()));
-
-        try {
-            s = new Scanner(new File(f2));
-        } catch(FileNotFoundException e1) {
-            System.err.println("FILE NOT FOUND: "+f2);
-            System.exit(2);
-        }
-
-        Collection<Edge> e = new ArrayList<Edge>();
-        while(s.hasNext()) {
-            try {
-                Vertex a = new Vertex(s.next());
-                Vertex b = new Vertex(s.next());
-                int w = s.nextInt();
-                e.add(new Edge(a,b,w));
-            } catch (NoSuchElementException e2) {
-                System.err.println("EDGE FILE FORMAT INCORRECT");
-                System.exit(3);
-            }
-        }
-
-        return new MSTGraph(v,e);
+    /**
+     * Read a graph from a vertex file and an edge file
+     * @param f1 the vertex file
+     * @param f2 the edge file
+     * @return the graph
+     * @throws IOException if a file is missing, unreadable or not in the graph format
+     */
+    public static MSTGraph readGraph(String f1, String f2) throws IOException {
+        return GraphLoader.readMSTGraph(f1, f2);
     }
 }
@@ -0,0 +1,558 @@
+import java.util.*;
+
+/**
+ * The storage MyGraph and MSTGraph share: vertices numbered with dense int
+ * ids and the out-edges of each vertex kept as a sorted row of target ids
+ * with a parallel row of weights. Rows grow in place as edges are added, so
+ * the graph can change. Searches read the rows of a directed core in place
+ * through rows(), and copying them out gives the compressed index without
+ * sorting or hashing again.
+ * A directed core keeps every edge a -> b in the row of a. An undirected core
+ * keeps each pair of vertices at most once, in the row of the end it was
+ * first added from; the other direction is found by looking in both rows
+ * instead of storing a mirrored entry.
+ * Not thread-safe; the graphs built on it guard their own changes.
+ */
+class GraphCore {
+    private static final int[] EMPTY = new int[0];
+
+    private final boolean directed;
+    // vertex id --> vertex
+    private final Vertex[] vertexArray;
+    // vertex --> vertex id, shared with every index built from this core
+    private final HashMap<Vertex, Integer> ids;
+    // the out-edges of v are targets[v][0 .. degree[v]) sorted by id, with weights[v] alongside
+    private final int[][] targets;
+    private final int[][] weights;
+    private final int[] degree;
+    private int edgeCount;
+    // bumped by every put and remove, so iterators over the rows can fail fast
+    private int modCount;
+    // compact copy of the rows, built lazily and dropped when an edge changes
+    private volatile CompactGraph index;
+    // the rows as a graph, which follows every change
+    private final Rows rows = new Rows();
+
+    /**
+     * Creates a core with the given vertices and edges, validating the edges
+     * the way MyGraph always has. A directed core drops equal duplicate edges;
+     * an undirected one keeps the first edge given for each pair of vertices.
+     * @param v the vertices, repeats are stored once
+     * @param e the edges
+     * @param directed whether the edges are directed
+     * @throws IllegalArgumentException if an edge weight is negative or, when
+     *   directed, two edges join the same vertices with different weights
+     * @throws NoSuchElementException if an edge uses a vertex that is not in v
+     */
+    GraphCore(Collection<Vertex> v, Collection<Edge> e, boolean directed){
+        if(v == null || e == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        this.directed = directed;
+        ids = new HashMap<>(v.size() * 2);
+        List<Vertex> order = new ArrayList<>(v.size());
+        for(Vertex vertex: v){
+            if(ids.putIfAbsent(vertex, order.size()) == null)
+                order.add(vertex);
+        }
+        vertexArray = order.toArray(new Vertex[order.size()]);
+        int n = vertexArray.length;
+        targets = new int[n][];
+        weights = new int[n][];
+        degree = new int[n];
+
+        int m = e.size();
+        int[] src = new int[m];
+        int[] dst = new int[m];
+        int[] w = new int[m];
+        int i = 0;
+        for(Edge edge: e){
+            if(edge.getWeight() < 0)
+                throw new IllegalArgumentException("Edge weight cannot be negative");
+            Integer s = ids.get(edge.getSource());
+            if(s == null)
+                throw new NoSuchElementException("Source vertex " + edge.getSource() + " is not in the graph");
+            Integer d = ids.get(edge.getDestination());
+            if(d == null)
+                throw new NoSuchElementException("Destination vertex " + edge.getDestination() + " is not in the graph");
+            src[i] = s;
+            dst[i] = d;
+            w[i] = edge.getWeight();
+            i++;
+        }
+        fill(src, dst, w, m);
+    }
+
+    /**
+     * Creates a core from edge arrays over distinct vertices, as the loader produces them
+     * @param vertices the vertices, numbered by position
+     * @param src the source id of each edge
+     * @param dst the destination id of each edge
+     * @param w the weight of each edge, none negative
+     * @param m the number of edges
+     * @param directed whether the edges are directed
+     * @throws IllegalArgumentException if, when directed, two edges join the
+     *   same vertices with different weights
+     */
+    GraphCore(Vertex[] vertices, int[] src, int[] dst, int[] w, int m, boolean directed){
+        this.directed = directed;
+        vertexArray = vertices;
+        ids = new HashMap<>(vertices.length * 2);
+        for(int i = 0; i < vertices.length; i++)
+            ids.put(vertices[i], i);
+        targets = new int[vertices.length][];
+        weights = new int[vertices.length][];
+        degree = new int[vertices.length];
+        fill(src, dst, w, m);
+    }
+
+    /**
+     * Creates a core holding the rows of a compact graph, which become its first index
+     * @param g a compact graph whose rows already follow the rules of the core
+     * @param directed whether the edges are directed
+     */
+    GraphCore(CompactGraph g, boolean directed){
+        this.directed = directed;
+        int n = g.vertexCount();
+        vertexArray = new Vertex[n];
+        ids = new HashMap<>(n * 2);
+        for(int v = 0; v < n; v++){
+            vertexArray[v] = g.vertexAt(v);
+            ids.put(vertexArray[v], v);
+        }
+        targets = new int[n][];
+        weights = new int[n][];
+        degree = new int[n];
+        for(int v = 0; v < n; v++)
+            setRow(v, g.targets(v), g.weights(v), g.edgeStart(v), g.edgeEnd(v));
+        edgeCount = g.edgeCount();
+        index = g;
+    }
+
+    // sort the edges into rows, dropping duplicates by the rules of the core
+    private void fill(int[] src, int[] dst, int[] w, int m){
+        int n = vertexArray.length;
+        if(!directed){
+            int[] kept = firstOfEachPair(n, src, dst, m);
+            int[] s = new int[kept.length];
+            int[] d = new int[kept.length];
+            int[] x = new int[kept.length];
+            for(int i = 0; i < kept.length; i++){
+                s[i] = src[kept[i]];
+                d[i] = dst[kept[i]];
+                x[i] = w[kept[i]];
+            }
+            src = s;
+            dst = d;
+            w = x;
+            m = kept.length;
+        }
+        int[][] csr = CompactGraph.buildRows(n, src, dst, w, m);
+        for(int v = 0; v < n; v++)
+            setRow(v, csr[1], csr[2], csr[0][v], csr[0][v + 1]);
+        edgeCount = csr[1].length;
+    }
+
+    // the positions of the first edge given for every unordered pair of ends, in order
+    private static int[] firstOfEachPair(int n, int[] src, int[] dst, int m){
+        // counting sort by the smaller end keeps the input order within each bucket
+        int[] start = new int[n + 1];
+        for(int i = 0; i < m; i++)
+            start[Math.min(src[i], dst[i]) + 1]++;
+        for(int v = 0; v < n; v++)
+            start[v + 1] += start[v];
+        // pack the larger end above the position so each bucket sorts by end, then by position
+        long[] packed = new long[m];
+        int[] next = Arrays.copyOf(start, n);
+        for(int i = 0; i < m; i++)
+            packed[next[Math.min(src[i], dst[i])]++] = ((long)Math.max(src[i], dst[i]) << 32) | i;
+        boolean[] keep = new boolean[m];
+        int kept = 0;
+        for(int v = 0; v < n; v++){
+            Arrays.sort(packed, start[v], start[v + 1]);
+            for(int i = start[v]; i < start[v + 1]; i++){
+                if(i == start[v] || (packed[i] >>> 32) != (packed[i - 1] >>> 32)){
+                    keep[(int)packed[i]] = true;
+                    kept++;
+                }
+            }
+        }
+        int[] result = new int[kept];
+        int k = 0;
+        for(int i = 0; i < m; i++)
+            if(keep[i])
+                result[k++] = i;
+        return result;
+    }
+
+    // copy slots from .. to of a compact row into the row of v
+    private void setRow(int v, int[] t, int[] w, int from, int to){
+        degree[v] = to - from;
+        targets[v] = from == to ? EMPTY : Arrays.copyOfRange(t, from, to);
+        weights[v] = from == to ? EMPTY : Arrays.copyOfRange(w, from, to);
+    }
+
+    boolean isDirected(){
+        return directed;
+    }
+
+    int vertexCount(){
+        return vertexArray.length;
+    }
+
+    int edgeCount(){
+        return edgeCount;
+    }
+
+    int indexOf(Vertex v){
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    Vertex vertexAt(int id){
+        return vertexArray[id];
+    }
+
+    boolean contains(Vertex v){
+        return ids.containsKey(v);
+    }
+
+    // the number of out-edges stored in the row of v
+    int degree(int v){
+        return degree[v];
+    }
+
+    // the row of v, valid in slots 0 .. degree(v) until the next change
+    int[] targets(int v){
+        return targets[v];
+    }
+
+    int[] weights(int v){
+        return weights[v];
+    }
+
+    /**
+     * Return the weight of the edge stored in the row of a with end b
+     * @param a a vertex id
+     * @param b a vertex id
+     * @return the weight, or -1 if the row of a has no edge to b
+     */
+    int weight(int a, int b){
+        int i = Arrays.binarySearch(targets[a], 0, degree[a], b);
+        return i < 0 ? -1 : weights[a][i];
+    }
+
+    /**
+     * Set the weight of the edge a -> b, adding it if the row of a has none
+     * @param a a vertex id
+     * @param b a vertex id
+     * @param w the weight
+     */
+    void put(int a, int b, int w){
+        int i = Arrays.binarySearch(targets[a], 0, degree[a], b);
+        if(i >= 0){
+            weights[a][i] = w;
+        }else{
+            i = -i - 1;
+            int d = degree[a];
+            if(d == targets[a].length){
+                int capacity = Math.max(4, d + (d >> 1));
+                targets[a] = Arrays.copyOf(targets[a], capacity);
+                weights[a] = Arrays.copyOf(weights[a], capacity);
+            }
+            System.arraycopy(targets[a], i, targets[a], i + 1, d - i);
+            System.arraycopy(weights[a], i, weights[a], i + 1, d - i);
+            targets[a][i] = b;
+            weights[a][i] = w;
+            degree[a]++;
+            edgeCount++;
+        }
+        modCount++;
+        index = null;
+    }
+
+    /**
+     * Remove the edge a -> b from the row of a
+     * @param a a vertex id
+     * @param b a vertex id
+     * @return the weight it had, or -1 if there was none
+     */
+    int remove(int a, int b){
+        int i = Arrays.binarySearch(targets[a], 0, degree[a], b);
+        if(i < 0)
+            return -1;
+        int old = weights[a][i];
+        int d = --degree[a];
+        System.arraycopy(targets[a], i + 1, targets[a], i, d - i);
+        System.arraycopy(weights[a], i + 1, weights[a], i, d - i);
+        edgeCount--;
+        modCount++;
+        index = null;
+        return old;
+    }
+
+    /**
+     * Return a core with every edge turned around, sharing nothing with this one
+     * @return the reverse, always directed
+     */
+    GraphCore reverse(){
+        int m = edgeCount;
+        int[] src = new int[m];
+        int[] dst = new int[m];
+        int[] w = new int[m];
+        int k = 0;
+        for(int v = 0; v < vertexArray.length; v++){
+            for(int i = 0; i < degree[v]; i++){
+                src[k] = targets[v][i];
+                dst[k] = v;
+                w[k] = weights[v][i];
+                k++;
+            }
+        }
+        return new GraphCore(vertexArray, ids, src, dst, w);
+    }
+
+    // used by reverse, whose edges come from valid rows and can share the numbering
+    private GraphCore(Vertex[] vertexArray, HashMap<Vertex, Integer> ids, int[] src, int[] dst, int[] w){
+        directed = true;
+        this.vertexArray = vertexArray;
+        this.ids = ids;
+        targets = new int[vertexArray.length][];
+        weights = new int[vertexArray.length][];
+        degree = new int[vertexArray.length];
+        fill(src, dst, w, src.length);
+    }
+
+    /**
+     * Return the edges as parallel arrays of source ids, destination ids and weights
+     * @return {sources, destinations, weights}, each edgeCount long
+     */
+    int[][] edgeArrays(){
+        int[] src = new int[edgeCount];
+        int[] dst = new int[edgeCount];
+        int[] w = new int[edgeCount];
+        int k = 0;
+        for(int v = 0; v < vertexArray.length; v++){
+            for(int i = 0; i < degree[v]; i++){
+                src[k] = v;
+                dst[k] = targets[v][i];
+                w[k] = weights[v][i];
+                k++;
+            }
+        }
+        return new int[][]{src, dst, w};
+    }
+
+    /**
+     * Return the rows as a compact graph over the same vertex ids, copying
+     * them on the first call after a change
+     * @return the compact graph
+     */
+    CompactGraph index(){
+        CompactGraph idx = index;
+        if(idx == null){
+            synchronized(this){
+                if(index == null){
+                    int n = vertexArray.length;
+                    int[] offsets = new int[n + 1];
+                    for(int v = 0; v < n; v++)
+                        offsets[v + 1] = offsets[v] + degree[v];
+                    int[] t = new int[edgeCount];
+                    int[] w = new int[edgeCount];
+                    for(int v = 0; v < n; v++){
+                        System.arraycopy(targets[v], 0, t, offsets[v], degree[v]);
+                        System.arraycopy(weights[v], 0, w, offsets[v], degree[v]);
+                    }
+                    index = new CompactGraph(vertexArray, ids, offsets, t, w);
+                }
+                idx = index;
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Return the rows as a graph that searches can run on directly. It reads
+     * the rows in place, so it follows every change without copying anything;
+     * an undirected core shows each pair of vertices in one row only.
+     * @return the rows as a graph
+     */
+    IndexedGraph rows(){
+        return rows;
+    }
+
+    // the rows of the core seen as an IndexedGraph, every slot of a row from 0 to its degree
+    private class Rows implements IndexedGraph {
+        public Collection<Vertex> vertices() {
+            return GraphCore.this.vertices();
+        }
+
+        public Collection<Edge> edges() {
+            return GraphCore.this.edges();
+        }
+
+        public Collection<Vertex> adjacentVertices(Vertex v) {
+            int id = indexOf(v);
+            if(id < 0)
+                throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
+            return GraphCore.this.adjacentVertices(id);
+        }
+
+        public int edgeCost(Vertex a, Vertex b) {
+            int s = indexOf(a);
+            int d = indexOf(b);
+            if(s < 0 || d < 0)
+                throw new IllegalArgumentException("Vertex does not exist in graph");
+            return weight(s, d);
+        }
+
+        public int vertexCount() {
+            return vertexArray.length;
+        }
+
+        public int indexOf(Vertex v) {
+            return GraphCore.this.indexOf(v);
+        }
+
+        public Vertex vertexAt(int id) {
+            return vertexArray[id];
+        }
+
+        public int edgeStart(int v) {
+            return 0;
+        }
+
+        public int edgeEnd(int v) {
+            return degree[v];
+        }
+
+        public int[] targets(int v) {
+            return targets[v];
+        }
+
+        public int[] weights(int v) {
+            return weights[v];
+        }
+
+        // the reverse of the rows as they are now, which does not follow later changes
+        public IndexedGraph reverse() {
+            return index().reverse();
+        }
+    }
+
+    /**
+     * Return the vertices in id order, as a view. The vertices of a core never
+     * change, so it can be iterated while edges are put and removed.
+     * @return the vertices
+     */
+    Collection<Vertex> vertices(){
+        return new AbstractList<Vertex>() {
+            public Vertex get(int index) {
+                return vertexArray[index];
+            }
+
+            public int size() {
+                return vertexArray.length;
+            }
+
+            public boolean contains(Object o) {
+                return o instanceof Vertex && ids.containsKey(o);
+            }
+        };
+    }
+
+    /**
+     * Return the edges as they are stored, as a view that creates each Edge
+     * as it is iterated and follows later changes. Its iterators throw
+     * ConcurrentModificationException once an edge is put or removed.
+     * @return the edges
+     */
+    Collection<Edge> edges(){
+        return new AbstractCollection<Edge>() {
+            public Iterator<Edge> iterator() {
+                return new Iterator<Edge>() {
+                    final int expected = modCount;
+                    int source = 0;
+                    int slot = 0;
+
+                    public boolean hasNext() {
+                        while(source < vertexArray.length && slot == degree[source]){
+                            source++;
+                            slot = 0;
+                        }
+                        return source < vertexArray.length;
+                    }
+
+                    public Edge next() {
+                        if(modCount != expected)
+                            throw new ConcurrentModificationException();
+                        if(!hasNext())
+                            throw new NoSuchElementException();
+                        Edge e = new Edge(vertexArray[source], vertexArray[targets[source][slot]], weights[source][slot]);
+                        slot++;
+                        return e;
+                    }
+                };
+            }
+
+            public int size() {
+                return edgeCount;
+            }
+
+            public boolean contains(Object o) {
+                if(!(o instanceof Edge))
+                    return false;
+                Edge e = (Edge)o;
+                int s = indexOf(e.getSource());
+                int d = indexOf(e.getDestination());
+                return s >= 0 && d >= 0 && weight(s, d) == e.getWeight();
+            }
+        };
+    }
+
+    /**
+     * Return the ends of the edges stored in the row of v, as a view whose
+     * iterators throw ConcurrentModificationException once an edge is put or removed
+     * @param v a vertex id
+     * @return the adjacent vertices
+     */
+    Collection<Vertex> adjacentVertices(int v){
+        return new AbstractList<Vertex>() {
+            public Vertex get(int index) {
+                if(index < 0 || index >= degree[v])
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                return vertexArray[targets[v][index]];
+            }
+
+            public int size() {
+                return degree[v];
+            }
+
+            public Iterator<Vertex> iterator() {
+                return new Iterator<Vertex>() {
+                    // the count of the core, not the modCount AbstractList keeps for itself
+                    final int expected = GraphCore.this.modCount;
+                    int slot = 0;
+
+                    public boolean hasNext() {
+                        return slot < degree[v];
+                    }
+
+                    public Vertex next() {
+                        if(GraphCore.this.modCount != expected)
+                            throw new ConcurrentModificationException();
+                        if(!hasNext())
+                            throw new NoSuchElementException();
+                        return vertexArray[targets[v][slot++]];
+                    }
+                };
+            }
+
+            public boolean contains(Object o) {
+                if(!(o instanceof Vertex))
+                    return false;
+                int t = indexOf((Vertex)o);
+                return t >= 0 && weight(v, t) != -1;
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+import java.io.IOException;
+
+/**
+ * Thrown when a vertex or edge file does not follow the text graph format.
+ * The message names the file and line where reading went wrong.
+ */
+public class GraphFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Create an exception for a problem at a line of a file
+     * @param file the file being read
+     * @param line the line the problem is on, counting from 1
+     * @param message what is wrong
+     */
+    public GraphFormatException(String file, int line, String message) {
+        super(file + " line " + line + ": " + message);
+    }
+}
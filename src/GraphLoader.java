@@ -0,0 +1,392 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Reads a graph from a vertex file (whitespace separated labels) and an edge
+ * file (whitespace separated source, destination, weight triples).
+ * Files are memory-mapped and tokens are parsed straight from the mapped
+ * bytes: edge labels are looked up in a VertexTable of vertex label bytes and
+ * weights are parsed as digits, so no String is created per edge. Edges are
+ * collected into int arrays of vertex ids in one pass and handed to the graph
+ * as a view, with no intermediate list of Edge objects.
+ * Large edge files are split into chunks that are parsed in parallel: a
+ * first pass counts the tokens and lines of every chunk, so each chunk knows
+ * which edge and which field of it its first token belongs to, and a second
+ * pass parses the chunks straight into their slots of the edge arrays.
+ * Problems are reported as exceptions naming the file and line.
+ */
+public class GraphLoader {
+    // bytes of edge file per parallel chunk
+    static final int CHUNK_BYTES = 1 << 22;
+
+    private final Vertex[] vertices;
+    private final int[] sources;
+    private final int[] destinations;
+    private final int[] weights;
+    private final int edgeCount;
+
+    private GraphLoader(Vertex[] vertices, int[] sources, int[] destinations, int[] weights, int edgeCount){
+        this.vertices = vertices;
+        this.sources = sources;
+        this.destinations = destinations;
+        this.weights = weights;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Read a MyGraph from a vertex file and an edge file
+     * @param vertexFile the vertex file
+     * @param edgeFile the edge file
+     * @return the graph
+     * @throws FileNotFoundException if a file does not exist
+     * @throws GraphFormatException if a file is not in the graph format
+     * @throws IOException if a file cannot be read
+     * @throws NoSuchElementException if an edge uses a vertex not in the vertex file
+     * @throws IllegalArgumentException if an edge weight is negative or two edges
+     *   join the same vertices with different weights
+     */
+    public static MyGraph readMyGraph(String vertexFile, String edgeFile) throws IOException {
+        return readMyGraph(vertexFile, edgeFile, CHUNK_BYTES);
+    }
+
+    // used by tests to split small edge files into many chunks
+    static MyGraph readMyGraph(String vertexFile, String edgeFile, int chunkBytes) throws IOException {
+        GraphLoader g = read(vertexFile, edgeFile, chunkBytes);
+        return new MyGraph(new GraphCore(g.vertices, g.sources, g.destinations, g.weights, g.edgeCount, true));
+    }
+
+    /**
+     * Read an MSTGraph from a vertex file and an edge file
+     * @param vertexFile the vertex file
+     * @param edgeFile the edge file
+     * @return the graph
+     * @throws FileNotFoundException if a file does not exist
+     * @throws GraphFormatException if a file is not in the graph format
+     * @throws IOException if a file cannot be read
+     * @throws NoSuchElementException if an edge uses a vertex not in the vertex file
+     * @throws IllegalArgumentException if an edge weight is negative or two edges
+     *   join the same vertices with different weights
+     */
+    public static MSTGraph readMSTGraph(String vertexFile, String edgeFile) throws IOException {
+        GraphLoader g = read(vertexFile, edgeFile, CHUNK_BYTES);
+        return new MSTGraph(new GraphCore(g.vertices, g.sources, g.destinations, g.weights, g.edgeCount, false));
+    }
+
+    /**
+     * Read a CompactGraph from a vertex file and an edge file. The edge arrays
+     * go straight into the compressed rows without creating Edge objects.
+     * @param vertexFile the vertex file
+     * @param edgeFile the edge file
+     * @return the graph
+     * @throws FileNotFoundException if a file does not exist
+     * @throws GraphFormatException if a file is not in the graph format
+     * @throws IOException if a file cannot be read
+     * @throws NoSuchElementException if an edge uses a vertex not in the vertex file
+     * @throws IllegalArgumentException if an edge weight is negative or two edges
+     *   join the same vertices with different weights
+     */
+    public static CompactGraph readCompactGraph(String vertexFile, String edgeFile) throws IOException {
+        GraphLoader g = read(vertexFile, edgeFile, CHUNK_BYTES);
+        int[][] csr = CompactGraph.buildRows(g.vertices.length, g.sources, g.destinations, g.weights, g.edgeCount);
+        return new CompactGraph(g.vertices, csr[0], csr[1], csr[2]);
+    }
+
+    // parse both files into vertex and edge arrays, the edge file in chunks of chunkBytes
+    private static GraphLoader read(String vertexFile, String edgeFile, int chunkBytes) throws IOException {
+        VertexTable labels = new VertexTable();
+        try(FileChannel channel = open(vertexFile)){
+            Tokenizer t = new Tokenizer(vertexFile, channel, 0, channel.size(), 1);
+            while(t.next())
+                labels.add(t.buffer(), t.start(), t.end());
+        }
+        Vertex[] vertices = labels.toArray();
+
+        try(FileChannel channel = open(edgeFile)){
+            long size = channel.size();
+            int count = (int)Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+            EdgeChunk[] chunks = new EdgeChunk[count];
+            for(int i = 0; i < count; i++)
+                chunks[i] = new EdgeChunk(edgeFile, channel, (long)i * chunkBytes, Math.min(size, (long)(i + 1) * chunkBytes));
+
+            // first pass: tokens and lines per chunk, then prefix sums
+            IntStream.range(0, count).parallel().forEach(i -> chunks[i].count());
+            long tokens = 0;
+            int line = 1;
+            for(EdgeChunk c: chunks){
+                c.rethrow();
+                c.firstToken = tokens;
+                c.firstLine = line;
+                tokens += c.tokens;
+                line += c.newlines;
+            }
+            if(tokens % 3 != 0)
+                throw new GraphFormatException(edgeFile, line, "file ends in the middle of an edge");
+            if(tokens / 3 > Integer.MAX_VALUE - 8)
+                throw new GraphFormatException(edgeFile, line, "too many edges");
+
+            // second pass: every chunk fills its own slots
+            int m = (int)(tokens / 3);
+            int[] src = new int[m];
+            int[] dst = new int[m];
+            int[] w = new int[m];
+            IntStream.range(0, count).parallel().forEach(i -> chunks[i].parse(labels, src, dst, w));
+            for(EdgeChunk c: chunks)
+                c.rethrow();
+            return new GraphLoader(vertices, src, dst, w, m);
+        }
+    }
+
+    // helper to open a file for reading
+    // throws file not found exception if it does not exist
+    private static FileChannel open(String file) throws IOException {
+        try{
+            return FileChannel.open(new File(file).toPath(), StandardOpenOption.READ);
+        }catch(NoSuchFileException e){
+            throw new FileNotFoundException("FILE NOT FOUND: " + file);
+        }
+    }
+
+    /*
+    The tokens of an edge file that start in [from, to). The first pass counts
+    them, the second parses them into the edge arrays, using the number of
+    tokens before the chunk to tell which edge and field each one is.
+    Any exception is kept so the one earliest in the file can be rethrown.
+     */
+    private static class EdgeChunk {
+        private final String name;
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        long tokens;
+        int newlines;
+        long firstToken;
+        int firstLine;
+        private Exception error;
+
+        EdgeChunk(String name, FileChannel channel, long from, long to){
+            this.name = name;
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        void count(){
+            try{
+                Tokenizer t = new Tokenizer(name, channel, from, to, 1);
+                while(t.next())
+                    tokens++;
+                newlines = t.line() - 1;
+            }catch(IOException e){
+                error = e;
+            }
+        }
+
+        void parse(VertexTable labels, int[] src, int[] dst, int[] w){
+            try{
+                Tokenizer t = new Tokenizer(name, channel, from, to, firstLine);
+                for(long k = firstToken; t.next(); k++){
+                    int edge = (int)(k / 3);
+                    switch((int)(k % 3)){
+                        case 0:
+                            src[edge] = labels.find(t.buffer(), t.start(), t.end());
+                            if(src[edge] < 0)
+                                throw new NoSuchElementException("Source vertex " + t.text() + " is not in the graph (" + t.where() + ")");
+                            break;
+                        case 1:
+                            dst[edge] = labels.find(t.buffer(), t.start(), t.end());
+                            if(dst[edge] < 0)
+                                throw new NoSuchElementException("Destination vertex " + t.text() + " is not in the graph (" + t.where() + ")");
+                            break;
+                        default:
+                            w[edge] = t.parseInt();
+                            if(w[edge] < 0)
+                                throw new IllegalArgumentException("Edge weight cannot be negative (" + t.where() + ")");
+                    }
+                }
+            }catch(IOException | RuntimeException e){
+                error = e;
+            }
+        }
+
+        // throw the exception this chunk stopped on, if any
+        void rethrow() throws IOException {
+            if(error instanceof IOException)
+                throw (IOException)error;
+            if(error instanceof RuntimeException)
+                throw (RuntimeException)error;
+        }
+    }
+
+    /*
+    Splits the part of a memory-mapped file that starts in [from, to) into
+    whitespace separated tokens, keeping track of line numbers. A token that
+    begins before from belongs to the previous part and is skipped, and the
+    last token may run past to. Files larger than one mapping are read through
+    a window that is moved forward as tokens are consumed.
+     */
+    static class Tokenizer {
+        // largest region mapped at once
+        private static final int WINDOW = 1 << 30;
+
+        private final String name;
+        private final FileChannel channel;
+        private final long fileSize;
+        private final long to;
+        // file offset of the start of the mapped window
+        private long base;
+        private MappedByteBuffer buffer;
+        private int limit;
+        private int pos;
+        private int line;
+        // the current token is buffer[start .. end)
+        private int start;
+        private int end;
+
+        Tokenizer(String name, FileChannel channel, long from, long to, int line) throws IOException {
+            this.name = name;
+            this.channel = channel;
+            this.to = to;
+            this.line = line;
+            fileSize = channel.size();
+            if(from == 0){
+                map(0, to);
+                return;
+            }
+            // skip the rest of a token that started before from
+            map(from - 1, to);
+            boolean inToken = !isSpace(buffer.get(0));
+            pos = 1;
+            while(inToken){
+                if(pos == limit && !advance())
+                    break;
+                if(isSpace(buffer.get(pos)))
+                    break;
+                pos++;
+            }
+        }
+
+        // map the window starting at a file offset, reaching a little past until when that is closer
+        private void map(long from, long until) throws IOException {
+            base = from;
+            limit = (int)Math.min(Math.min(WINDOW, fileSize - from), until - from + 256);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, limit);
+            pos = 0;
+        }
+
+        // move the window on to the current position
+        // returns false at the end of the file
+        private boolean advance() throws IOException {
+            if(base + limit >= fileSize)
+                return false;
+            map(base + pos, fileSize);
+            return true;
+        }
+
+        /**
+         * Advance to the next token
+         * @return false if there are no more tokens
+         */
+        boolean next() throws IOException {
+            // skip whitespace, counting lines
+            while(true){
+                if(pos == limit && !advance())
+                    return false;
+                if(base + pos >= to)
+                    return false;
+                byte b = buffer.get(pos);
+                if(!isSpace(b))
+                    break;
+                if(b == '\n')
+                    line++;
+                pos++;
+            }
+            start = pos;
+            while(true){
+                if(pos == limit){
+                    if(base + limit >= fileSize)
+                        break;
+                    // the token runs past the window, so map again from its start
+                    int length = pos - start;
+                    map(base + start, fileSize);
+                    start = 0;
+                    pos = length;
+                    continue;
+                }
+                if(isSpace(buffer.get(pos)))
+                    break;
+                pos++;
+            }
+            end = pos;
+            return true;
+        }
+
+        private static boolean isSpace(byte b){
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0b;
+        }
+
+        int line(){
+            return line;
+        }
+
+        int start(){
+            return start;
+        }
+
+        int end(){
+            return end;
+        }
+
+        ByteBuffer buffer(){
+            return buffer;
+        }
+
+        // the current token as a String, for labels and error messages
+        String text(){
+            byte[] bytes = new byte[end - start];
+            for(int i = 0; i < bytes.length; i++)
+                bytes[i] = buffer.get(start + i);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // the file and line of the current token
+        String where(){
+            return name + " line " + line;
+        }
+
+        /**
+         * Parse the current token as an int
+         * @return its value
+         * @throws GraphFormatException if the token is not an int
+         */
+        int parseInt() throws GraphFormatException {
+            int i = start;
+            boolean negative = false;
+            if(buffer.get(i) == '-' || buffer.get(i) == '+'){
+                negative = buffer.get(i) == '-';
+                i++;
+            }
+            if(i == end)
+                throw new GraphFormatException(name, line, "expected an integer weight but found '" + text() + "'");
+            long value = 0;
+            for(; i < end; i++){
+                int digit = buffer.get(i) - '0';
+                if(digit < 0 || digit > 9)
+                    throw new GraphFormatException(name, line, "expected an integer weight but found '" + text() + "'");
+                value = value * 10 + digit;
+                if(value > Integer.MAX_VALUE + 1L)
+                    throw new GraphFormatException(name, line, "weight '" + text() + "' does not fit in an int");
+            }
+            value = negative ? -value : value;
+            if(value > Integer.MAX_VALUE)
+                throw new GraphFormatException(name, line, "weight '" + text() + "' does not fit in an int");
+            return (int)value;
+        }
+    }
+}
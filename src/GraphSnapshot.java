@@ -0,0 +1,225 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a graph, written once and opened on later runs instead of
+ * parsing and validating the text files again.
+ * The file is a header followed by the body:
+ *   magic "GRF1", version, directed flag, vertex count n, edge count m, label byte count, CRC32 of the body
+ *   label lengths int[n], UTF-8 label bytes, offsets int[n+1], targets int[m], weights int[m]
+ * All ints are big endian. The body holds the compressed rows of a CompactGraph
+ * as they are, so opening a snapshot maps the file, checks the header and checksum
+ * and copies the arrays out in bulk. Labels are not decoded; the label bytes
+ * back a VertexTable of canonical vertices. The rows are checked as they are
+ * read, so a file that passes its checksum but was not written by write is
+ * rejected rather than handed to the searches.
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x47524631;
+    private static final int VERSION = 2;
+    private static final int HEADER = 6 * 4 + 8;
+    // ints written or read per buffer
+    private static final int CHUNK = 1 << 16;
+    // largest region mapped at once
+    private static final int WINDOW = 1 << 30;
+
+    private GraphSnapshot(){
+    }
+
+    /**
+     * Write g to a snapshot file
+     * @param g the graph
+     * @param directed whether the edges of g are directed; an undirected graph
+     *   must store each pair of vertices once, as MSTGraph does
+     * @param f the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Graph g, boolean directed, File f) throws IOException {
+        CompactGraph c = CompactGraph.of(g);
+        int n = c.vertexCount();
+        // labels are copied out as bytes, interned ones straight from their table
+        int[] lengths = new int[n];
+        long labelBytes = 0;
+        for(int v = 0; v < n; v++){
+            lengths[v] = c.vertexAt(v).labelLength();
+            labelBytes += lengths[v];
+        }
+        if(labelBytes > Integer.MAX_VALUE)
+            throw new IOException("Vertex labels are too long for a snapshot");
+        int[] offsets = new int[n + 1];
+        for(int v = 0; v <= n; v++)
+            offsets[v] = v < n ? c.edgeStart(v) : c.edgeCount();
+        int[] targets = n == 0 ? new int[0] : c.targets(0);
+        int[] weights = n == 0 ? new int[0] : c.weights(0);
+
+        try(FileChannel out = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            // leave room for the header, written last once the checksum is known
+            out.position(HEADER);
+            CRC32 crc = new CRC32();
+            writeInts(out, lengths, crc);
+            writeLabels(out, c, lengths, crc);
+            writeInts(out, offsets, crc);
+            writeInts(out, targets, crc);
+            writeInts(out, weights, crc);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(directed ? 1 : 0).putInt(n).putInt(c.edgeCount()).putInt((int)labelBytes);
+            header.putLong(crc.getValue());
+            header.flip();
+            out.position(0);
+            while(header.hasRemaining())
+                out.write(header);
+        }
+    }
+
+    /**
+     * Open a snapshot written by write
+     * @param f the snapshot file
+     * @param directed whether the graph to open is directed
+     * @return the graph it holds
+     * @throws IOException if the file cannot be read, is not a snapshot,
+     *   was written for the other kind of graph, fails its checksum or
+     *   holds rows that are not valid
+     */
+    public static CompactGraph read(File f, boolean directed) throws IOException {
+        try(FileChannel in = FileChannel.open(f.toPath(), StandardOpenOption.READ)){
+            long size = in.size();
+            if(size < HEADER)
+                throw new IOException(f + " is not a graph snapshot");
+            ByteBuffer header = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if(header.getInt() != MAGIC)
+                throw new IOException(f + " is not a graph snapshot");
+            if(header.getInt() != VERSION)
+                throw new IOException(f + " has an unsupported snapshot version");
+            int flag = header.getInt();
+            if(flag != 0 && flag != 1)
+                throw new IOException(f + " is truncated or corrupt");
+            if((flag == 1) != directed)
+                throw new IOException(f + " holds " + (flag == 1 ? "a directed" : "an undirected") + " graph");
+            int n = header.getInt();
+            int m = header.getInt();
+            int labelBytes = header.getInt();
+            long checksum = header.getLong();
+            if(n < 0 || m < 0 || labelBytes < 0
+                    || size != HEADER + 4L * n + labelBytes + 4L * (n + 1) + 8L * m)
+                throw new IOException(f + " is truncated or corrupt");
+
+            CRC32 crc = new CRC32();
+            long pos = HEADER;
+            int[] lengths = new int[n];
+            pos = readInts(in, pos, lengths, crc);
+            byte[] bytes = new byte[labelBytes];
+            ByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, pos, labelBytes);
+            mapped.get(bytes);
+            crc.update(bytes);
+            pos += labelBytes;
+            int[] offsets = new int[n + 1];
+            pos = readInts(in, pos, offsets, crc);
+            int[] targets = new int[m];
+            pos = readInts(in, pos, targets, crc);
+            int[] weights = new int[m];
+            readInts(in, pos, weights, crc);
+            if(crc.getValue() != checksum)
+                throw new IOException(f + " failed its checksum");
+
+            // the label bytes become the arena of an interning table as they are
+            Vertex[] vertices;
+            try{
+                vertices = new VertexTable(bytes, lengths).toArray();
+            }catch(IllegalArgumentException e){
+                throw new IOException(f + " is truncated or corrupt");
+            }
+            checkRows(f, n, m, offsets, targets, weights, directed);
+            return new CompactGraph(vertices, offsets, targets, weights);
+        }
+    }
+
+    // helper that checks the rows are in order, sorted, in range and non negative,
+    // and that an undirected graph stores each pair of vertices once
+    private static void checkRows(File f, int n, int m, int[] offsets, int[] targets, int[] weights,
+            boolean directed) throws IOException {
+        if(offsets[0] != 0 || offsets[n] != m)
+            throw new IOException(f + " is truncated or corrupt");
+        for(int v = 0; v < n; v++){
+            int start = offsets[v];
+            int end = offsets[v + 1];
+            if(end < start || end > m)
+                throw new IOException(f + " has edge offsets out of order at vertex " + v);
+            for(int i = start; i < end; i++){
+                if(targets[i] < 0 || targets[i] >= n)
+                    throw new IOException(f + " has an edge to a vertex outside the graph at vertex " + v);
+                if(i > start && targets[i] <= targets[i - 1])
+                    throw new IOException(f + " has an unsorted row at vertex " + v);
+                if(weights[i] < 0)
+                    throw new IOException(f + " has a negative edge weight at vertex " + v);
+            }
+        }
+        if(directed)
+            return;
+        for(int v = 0; v < n; v++){
+            for(int i = offsets[v]; i < offsets[v + 1]; i++){
+                int t = targets[i];
+                if(t > v && Arrays.binarySearch(targets, offsets[t], offsets[t + 1], v) >= 0)
+                    throw new IOException(f + " stores the pair of vertices " + v + " and " + t + " twice");
+            }
+        }
+    }
+
+    // helper that writes the label bytes of every vertex through a bounded buffer
+    private static void writeLabels(FileChannel out, CompactGraph c, int[] lengths, CRC32 crc) throws IOException {
+        int longest = 0;
+        for(int length: lengths)
+            longest = Math.max(longest, length);
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(4 * CHUNK, longest));
+        for(int v = 0; v < lengths.length; v++){
+            if(buffer.remaining() < lengths[v]){
+                buffer.flip();
+                write(out, buffer, crc);
+                buffer.clear();
+            }
+            c.vertexAt(v).putLabel(buffer);
+        }
+        buffer.flip();
+        write(out, buffer, crc);
+    }
+
+    // helper that writes an int array through a bounded buffer
+    private static void writeInts(FileChannel out, int[] a, CRC32 crc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Math.min(CHUNK, Math.max(1, a.length)));
+        for(int i = 0; i < a.length; i += CHUNK){
+            int len = Math.min(CHUNK, a.length - i);
+            buffer.clear();
+            buffer.asIntBuffer().put(a, i, len);
+            buffer.limit(4 * len);
+            write(out, buffer, crc);
+        }
+    }
+
+    // helper that checksums and writes the remaining bytes of a buffer
+    private static void write(FileChannel out, ByteBuffer buffer, CRC32 crc) throws IOException {
+        crc.update(buffer.array(), buffer.position(), buffer.remaining());
+        while(buffer.hasRemaining())
+            out.write(buffer);
+    }
+
+    // helper that fills an int array from the file at pos, a window at a time
+    // returns the position after the array
+    private static long readInts(FileChannel in, long pos, int[] a, CRC32 crc) throws IOException {
+        int perWindow = WINDOW / 4;
+        for(int i = 0; i < a.length; i += perWindow){
+            int len = Math.min(perWindow, a.length - i);
+            ByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, pos, 4L * len);
+            crc.update(mapped.duplicate());
+            IntBuffer ints = mapped.asIntBuffer();
+            ints.get(a, i, len);
+            pos += 4L * len;
+        }
+        return pos;
+    }
+}
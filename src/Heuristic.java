@@ -0,0 +1,31 @@
+/**
+ * An estimate of the remaining cost from a vertex to a goal, used to steer
+ * A* search toward the goal. A heuristic is admissible if it never
+ * estimates more than the true cost of the cheapest path, in which case
+ * A* finds a path as cheap as the one Dijkstra's algorithm finds.
+ * Estimates are asked for in the middle of a search, so a heuristic must not
+ * itself query shortest paths on the graph being searched.
+ */
+public interface Heuristic {
+
+    /**
+     * Estimate the cost of the cheapest path from v to goal
+     * @param v the vertex to estimate from
+     * @param goal the destination of the search
+     * @return a nonnegative lower bound on the cost from v to goal
+     */
+    public int estimate(Vertex v, Vertex goal);
+
+    /**
+     * Estimate the cost from v to goal given as ids of g. Searches call this
+     * form; implementations that keep tables by id can override it to skip
+     * translating ids back into vertices.
+     * @param g the graph the ids belong to
+     * @param v the id to estimate from
+     * @param goal the id of the destination
+     * @return a nonnegative lower bound on the cost from v to goal
+     */
+    default int estimate(IndexedGraph g, int v, int goal) {
+        return estimate(g.vertexAt(v), g.vertexAt(goal));
+    }
+}
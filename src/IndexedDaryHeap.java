@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * A d-ary min-heap over int ids 0 .. capacity-1 keyed by int priorities.
+ * A wider heap is shallower, so decreaseKey, which only sifts up, gets
+ * cheaper while pollMin compares d children per level. That suits
+ * algorithms like Prim's on dense graphs, which lower keys far more often
+ * than they remove the minimum. With d = 2 this is a binary heap.
+ */
+public class IndexedDaryHeap implements IndexedPriorityQueue {
+    // children per node
+    private final int d;
+    // heap[0 .. size-1] holds the ids in heap order
+    private final int[] heap;
+    // keys[id] is the priority of id while it is in the heap
+    private final int[] keys;
+    // pos[id] is the index of id in heap, or -1 if id is not in the heap
+    private final int[] pos;
+    private int size;
+
+    /**
+     * Creates an empty heap that can hold the ids 0 .. capacity-1
+     * @param capacity the number of distinct ids
+     * @param d the number of children per node
+     * @throws IllegalArgumentException if d is less than 2
+     */
+    public IndexedDaryHeap(int capacity, int d){
+        if(d < 2)
+            throw new IllegalArgumentException("Heap needs at least 2 children per node");
+        this.d = d;
+        heap = new int[capacity];
+        keys = new int[capacity];
+        pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean contains(int id){
+        return pos[id] >= 0;
+    }
+
+    public int key(int id){
+        return keys[id];
+    }
+
+    public void insert(int id, int key){
+        if(pos[id] >= 0)
+            throw new IllegalArgumentException("Id " + id + " is already in the heap");
+        keys[id] = key;
+        heap[size] = id;
+        pos[id] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    public void decreaseKey(int id, int key){
+        if(key > keys[id])
+            throw new IllegalArgumentException("Key cannot increase");
+        keys[id] = key;
+        siftUp(pos[id]);
+    }
+
+    public int minKey(){
+        if(size == 0)
+            throw new IllegalStateException("Heap is empty");
+        return keys[heap[0]];
+    }
+
+    public int pollMin(){
+        if(size == 0)
+            throw new IllegalStateException("Heap is empty");
+        int min = heap[0];
+        size--;
+        pos[min] = -1;
+        if(size > 0){
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    public void clear(){
+        for(int i = 0; i < size; i++)
+            pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    // move the id at index i up until its parent is no larger
+    private void siftUp(int i){
+        int id = heap[i];
+        int key = keys[id];
+        while(i > 0){
+            int parent = (i - 1) / d;
+            int p = heap[parent];
+            if(keys[p] <= key)
+                break;
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+
+    // move the id at index i down until none of its children is smaller
+    private void siftDown(int i){
+        int id = heap[i];
+        int key = keys[id];
+        while(true){
+            int first = d * i + 1;
+            if(first >= size)
+                break;
+            int child = first;
+            for(int c = first + 1, end = Math.min(first + d, size); c < end; c++)
+                if(keys[heap[c]] < keys[heap[child]])
+                    child = c;
+            if(keys[heap[child]] >= key)
+                break;
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * A graph whose vertices are numbered with dense int ids 0 .. vertexCount()-1.
+ * The out-edges of vertex v are the slots edgeStart(v) .. edgeEnd(v)-1 of the
+ * arrays returned by targets(v) and weights(v), which lets search algorithms
+ * scan neighbors without boxing or allocating.
+ */
+public interface IndexedGraph extends Graph {
+
+    /**
+     * Return the number of vertices in this graph
+     * @return the number of vertices
+     */
+    public int vertexCount();
+
+    /**
+     * Return the id of a vertex
+     * @param v a vertex
+     * @return the id of v, or -1 if v is not in the graph
+     */
+    public int indexOf(Vertex v);
+
+    /**
+     * Return the vertex with a given id
+     * @param id a vertex id
+     * @return the vertex numbered id
+     * @throws IndexOutOfBoundsException if id is not a vertex id
+     */
+    public Vertex vertexAt(int id);
+
+    /**
+     * Return the first out-edge slot of vertex v
+     * @param v a vertex id
+     * @return index of the first out-edge of v in targets(v) and weights(v)
+     */
+    public int edgeStart(int v);
+
+    /**
+     * Return one past the last out-edge slot of vertex v
+     * @param v a vertex id
+     * @return index one past the last out-edge of v in targets(v) and weights(v)
+     */
+    public int edgeEnd(int v);
+
+    /**
+     * Return the array holding the destination ids of the out-edges of v.
+     * The array must not be modified by the caller.
+     * @param v a vertex id
+     * @return the destination array for v
+     */
+    public int[] targets(int v);
+
+    /**
+     * Return the array holding the weights of the out-edges of v.
+     * The array must not be modified by the caller.
+     * @param v a vertex id
+     * @return the weight array for v
+     */
+    public int[] weights(int v);
+
+    /**
+     * Return the reverse of this graph: the same vertices and ids, with every
+     * edge a -> b turned into b -> a. Used to search backward from a destination.
+     * @return the reversed graph
+     */
+    public IndexedGraph reverse();
+}
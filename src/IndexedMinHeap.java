@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * A binary min-heap over int ids 0 .. capacity-1 keyed by int priorities.
+ * Tracks the heap position of every id so decreaseKey runs in O(log n)
+ * and no objects are allocated after construction.
+ */
+public class IndexedMinHeap implements IndexedPriorityQueue {
+    // heap[0 .. size-1] holds the ids in heap order
+    private final int[] heap;
+    // keys[id] is the priority of id while it is in the heap
+    private final int[] keys;
+    // pos[id] is the index of id in heap, or -1 if id is not in the heap
+    private final int[] pos;
+    private int size;
+
+    /**
+     * Creates an empty heap that can hold the ids 0 .. capacity-1
+     * @param capacity the number of distinct ids
+     */
+    public IndexedMinHeap(int capacity){
+        heap = new int[capacity];
+        keys = new int[capacity];
+        pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Test whether an id is in the heap
+     * @param id an id
+     * @return true if id is waiting in the heap
+     */
+    public boolean contains(int id){
+        return pos[id] >= 0;
+    }
+
+    /**
+     * Return the current priority of an id in the heap
+     * @param id an id in the heap
+     * @return the priority of id
+     */
+    public int key(int id){
+        return keys[id];
+    }
+
+    /**
+     * Add an id with the given priority
+     * @param id an id not already in the heap
+     * @param key its priority
+     * @throws IllegalArgumentException if id is already in the heap
+     */
+    public void insert(int id, int key){
+        if(pos[id] >= 0)
+            throw new IllegalArgumentException("Id " + id + " is already in the heap");
+        keys[id] = key;
+        heap[size] = id;
+        pos[id] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Lower the priority of an id already in the heap
+     * @param id an id in the heap
+     * @param key its new priority, no larger than the current one
+     * @throws IllegalArgumentException if the key would increase
+     */
+    public void decreaseKey(int id, int key){
+        if(key > keys[id])
+            throw new IllegalArgumentException("Key cannot increase");
+        keys[id] = key;
+        siftUp(pos[id]);
+    }
+
+    /**
+     * Return the smallest priority in the heap without removing it
+     * @return the smallest priority
+     * @throws IllegalStateException if the heap is empty
+     */
+    public int minKey(){
+        if(size == 0)
+            throw new IllegalStateException("Heap is empty");
+        return keys[heap[0]];
+    }
+
+    /**
+     * Remove and return the id with the smallest priority
+     * @return the id with the smallest priority
+     * @throws IllegalStateException if the heap is empty
+     */
+    public int pollMin(){
+        if(size == 0)
+            throw new IllegalStateException("Heap is empty");
+        int min = heap[0];
+        size--;
+        pos[min] = -1;
+        if(size > 0){
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Remove every id from the heap in time proportional to the ids removed
+     */
+    public void clear(){
+        for(int i = 0; i < size; i++)
+            pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    // move the id at index i up until its parent is no larger
+    private void siftUp(int i){
+        int id = heap[i];
+        int key = keys[id];
+        while(i > 0){
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if(keys[p] <= key)
+                break;
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+
+    // move the id at index i down until both children are no smaller
+    private void siftDown(int i){
+        int id = heap[i];
+        int key = keys[id];
+        int half = size >>> 1;
+        while(i < half){
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if(right < size && keys[heap[right]] < keys[heap[child]])
+                child = right;
+            if(keys[heap[child]] >= key)
+                break;
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+}
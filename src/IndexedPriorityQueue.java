@@ -0,0 +1,61 @@
+/**
+ * A priority queue over int ids 0 .. capacity-1 keyed by int priorities,
+ * with decrease-key. This is the queue contract Dijkstra's algorithm needs,
+ * so searches can swap in whichever implementation suits the edge weights.
+ */
+public interface IndexedPriorityQueue {
+
+    public boolean isEmpty();
+
+    public int size();
+
+    /**
+     * Test whether an id is in the queue
+     * @param id an id
+     * @return true if id is waiting in the queue
+     */
+    public boolean contains(int id);
+
+    /**
+     * Return the current priority of an id in the queue
+     * @param id an id in the queue
+     * @return the priority of id
+     */
+    public int key(int id);
+
+    /**
+     * Add an id with the given priority
+     * @param id an id not already in the queue
+     * @param key its priority
+     * @throws IllegalArgumentException if id is already in the queue or the
+     *   queue cannot hold the key
+     */
+    public void insert(int id, int key);
+
+    /**
+     * Lower the priority of an id already in the queue
+     * @param id an id in the queue
+     * @param key its new priority, no larger than the current one
+     * @throws IllegalArgumentException if the key would increase
+     */
+    public void decreaseKey(int id, int key);
+
+    /**
+     * Return the smallest priority in the queue without removing it
+     * @return the smallest priority
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int minKey();
+
+    /**
+     * Remove and return the id with the smallest priority
+     * @return the id with the smallest priority
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int pollMin();
+
+    /**
+     * Remove every id from the queue, ready for a new search
+     */
+    public void clear();
+}
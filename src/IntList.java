@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, for hot loops that should not box.
+ */
+class IntList {
+    private int[] items;
+    private int size;
+
+    IntList(){
+        this(8);
+    }
+
+    IntList(int capacity){
+        items = new int[Math.max(1, capacity)];
+    }
+
+    void add(int x){
+        if(size == items.length)
+            items = Arrays.copyOf(items, size * 2);
+        items[size++] = x;
+    }
+
+    void addAll(IntList other){
+        if(size + other.size > items.length)
+            items = Arrays.copyOf(items, Math.max(size + other.size, size * 2));
+        System.arraycopy(other.items, 0, items, size, other.size);
+        size += other.size;
+    }
+
+    int removeLast(){
+        return items[--size];
+    }
+
+    int get(int i){
+        return items[i];
+    }
+
+    int size(){
+        return size;
+    }
+
+    boolean isEmpty(){
+        return size == 0;
+    }
+
+    void clear(){
+        size = 0;
+    }
+
+    int[] toArray(){
+        return Arrays.copyOf(items, size);
+    }
+}
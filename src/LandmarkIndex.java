@@ -0,0 +1,332 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * ALT (A*, landmarks, triangle inequality) preprocessing for a static graph.
+ * Picks K landmark vertices and stores the distance from every landmark to
+ * every vertex and from every vertex to every landmark. By the triangle
+ * inequality d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L)
+ * for every landmark L, which makes the index an admissible and consistent
+ * heuristic for A* search.
+ * Tables are int arrays laid out vertex by vertex so one estimate reads one
+ * contiguous run, and can be saved to a file and loaded back for the same graph.
+ */
+public class LandmarkIndex implements Heuristic {
+    /**
+     * How landmarks are picked
+     */
+    public enum Selection {
+        /** repeatedly pick the vertex farthest from the landmarks picked so far */
+        FARTHEST,
+        /** pick leaves of shortest path trees whose paths the current landmarks bound worst */
+        AVOID
+    }
+
+    // distance stored for a vertex a landmark cannot reach or be reached from
+    static final int INFINITY = Integer.MAX_VALUE;
+    // "LMK1" in ascii, marks a landmark file
+    private static final int MAGIC = 0x4c4d4b31;
+    private static final int VERSION = 1;
+    // ints copied per read or write when moving tables to and from a file
+    private static final int CHUNK = 1 << 16;
+
+    private final IndexedGraph graph;
+    // ids of the landmark vertices
+    private final int[] landmarks;
+    // from[v * k + i] is the distance from landmark i to v
+    private final int[] from;
+    // to[v * k + i] is the distance from v to landmark i
+    private final int[] to;
+
+    private LandmarkIndex(IndexedGraph graph, int[] landmarks, int[] from, int[] to){
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Select landmarks and compute their distance tables
+     * @param g the graph to preprocess
+     * @param k the number of landmarks, capped at the number of vertices
+     * @param selection how to pick the landmarks
+     * @return the landmark index
+     * @throws IllegalArgumentException if k is negative
+     */
+    public static LandmarkIndex build(IndexedGraph g, int k, Selection selection){
+        if(g == null || selection == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        if(k < 0)
+            throw new IllegalArgumentException("Number of landmarks cannot be negative");
+        int n = g.vertexCount();
+        k = Math.min(k, n);
+        int[] landmarks = new int[k];
+        int[] from = new int[n * k];
+        int[] to = new int[n * k];
+        ShortestPathEngine forward = new ShortestPathEngine(g);
+        ShortestPathEngine backward = new ShortestPathEngine(g.reverse());
+        Random random = new Random(n);
+
+        // smallest distance from any landmark so far, for farthest selection
+        int[] nearest = new int[n];
+        Arrays.fill(nearest, INFINITY);
+        boolean[] chosen = new boolean[n];
+        for(int i = 0; i < k; i++){
+            LandmarkIndex partial = new LandmarkIndex(g, Arrays.copyOf(landmarks, i), null, null);
+            int l;
+            if(i == 0 || selection == Selection.FARTHEST)
+                l = farthest(forward, nearest, chosen, random, i == 0);
+            else
+                l = avoid(forward, partial, from, to, k, chosen, random);
+            if(l < 0)
+                l = farthest(forward, nearest, chosen, random, false);
+            landmarks[i] = l;
+            chosen[l] = true;
+
+            // fill column i of both tables
+            forward.search(l, -1);
+            backward.search(l, -1);
+            for(int v = 0; v < n; v++){
+                int d = forward.reached(v) ? forward.distance(v) : INFINITY;
+                from[v * k + i] = d;
+                to[v * k + i] = backward.reached(v) ? backward.distance(v) : INFINITY;
+                nearest[v] = Math.min(nearest[v], d);
+            }
+        }
+        return new LandmarkIndex(g, landmarks, from, to);
+    }
+
+    // helper that picks the unchosen vertex farthest from every landmark so far
+    // when first is true there are no landmarks yet, so start from the vertex farthest from a random one
+    private static int farthest(ShortestPathEngine forward, int[] nearest, boolean[] chosen, Random random, boolean first){
+        int n = nearest.length;
+        if(first){
+            forward.search(random.nextInt(n), -1);
+            int best = -1;
+            for(int v = 0; v < n; v++)
+                if(forward.reached(v) && (best < 0 || forward.distance(v) > forward.distance(best)))
+                    best = v;
+            return best;
+        }
+        // vertices no landmark reaches count as farthest, which spreads landmarks over components
+        int best = -1;
+        for(int v = 0; v < n; v++)
+            if(!chosen[v] && (best < 0 || nearest[v] > nearest[best]))
+                best = v;
+        return best;
+    }
+
+    // helper for the avoid strategy: grow a shortest path tree from a random root, weigh every vertex
+    // by how badly the current landmarks bound its distance from the root, and walk down to the leaf
+    // of the heaviest subtree that holds no landmark yet. returns -1 if every subtree holds one
+    private static int avoid(ShortestPathEngine forward, LandmarkIndex partial, int[] from, int[] to, int k,
+                             boolean[] chosen, Random random){
+        int n = chosen.length;
+        int root = random.nextInt(n);
+        forward.search(root, -1);
+
+        // children lists of the tree, as rows of one array
+        int[] childStart = new int[n + 1];
+        for(int v = 0; v < n; v++)
+            if(forward.parent(v) >= 0)
+                childStart[forward.parent(v) + 1]++;
+        for(int v = 0; v < n; v++)
+            childStart[v + 1] += childStart[v];
+        int[] children = new int[childStart[n]];
+        int[] next = Arrays.copyOf(childStart, n);
+        for(int v = 0; v < n; v++)
+            if(forward.parent(v) >= 0)
+                children[next[forward.parent(v)]++] = v;
+
+        // breadth first order puts every parent before its children
+        int[] order = new int[n];
+        int count = 0;
+        order[count++] = root;
+        for(int i = 0; i < count; i++)
+            for(int c = childStart[order[i]]; c < childStart[order[i] + 1]; c++)
+                order[count++] = children[c];
+
+        // weight = distance from the root minus its landmark lower bound, summed up the tree,
+        // with subtrees that already hold a landmark zeroed out
+        long[] size = new long[n];
+        for(int i = count - 1; i >= 0; i--){
+            int v = order[i];
+            long s = (long)forward.distance(v) - partial.bound(from, to, k, root, v);
+            boolean covered = chosen[v];
+            for(int c = childStart[v]; c < childStart[v + 1]; c++){
+                if(size[children[c]] < 0)
+                    covered = true;
+                else
+                    s += size[children[c]];
+            }
+            // negative marks a subtree holding a landmark
+            size[v] = covered ? -1 : s;
+        }
+        if(size[root] < 0)
+            return -1;
+        int v = root;
+        while(true){
+            int heaviest = -1;
+            for(int c = childStart[v]; c < childStart[v + 1]; c++)
+                if(size[children[c]] >= 0 && (heaviest < 0 || size[children[c]] > size[heaviest]))
+                    heaviest = children[c];
+            if(heaviest < 0)
+                return v;
+            v = heaviest;
+        }
+    }
+
+    /**
+     * Return the number of landmarks
+     * @return the number of landmarks
+     */
+    public int landmarkCount(){
+        return landmarks.length;
+    }
+
+    /**
+     * Return a landmark vertex
+     * @param i the landmark number, 0 .. landmarkCount()-1
+     * @return the landmark vertex
+     */
+    public Vertex landmark(int i){
+        return graph.vertexAt(landmarks[i]);
+    }
+
+    /**
+     * Estimate the cost of the cheapest path from v to goal
+     * @param v the vertex to estimate from
+     * @param goal the destination of the search
+     * @return a lower bound on the cost from v to goal, or 0 if either is not in the graph
+     */
+    public int estimate(Vertex v, Vertex goal){
+        int s = graph.indexOf(v);
+        int t = graph.indexOf(goal);
+        if(s < 0 || t < 0)
+            return 0;
+        return bound(from, to, landmarks.length, s, t);
+    }
+
+    public int estimate(IndexedGraph g, int v, int goal){
+        // ids of another graph have to go through the vertices
+        if(g != graph)
+            return estimate(g.vertexAt(v), g.vertexAt(goal));
+        return bound(from, to, landmarks.length, v, goal);
+    }
+
+    // the largest triangle inequality lower bound on d(v, t) over the landmarks in the tables
+    // uses the first landmarks.length columns of tables with k columns
+    private int bound(int[] from, int[] to, int k, int v, int t){
+        int best = 0;
+        int vi = v * k;
+        int ti = t * k;
+        for(int i = 0; i < landmarks.length; i++){
+            // d(v, t) >= d(L, t) - d(L, v)
+            int lv = from[vi + i];
+            int lt = from[ti + i];
+            if(lv != INFINITY && lt != INFINITY && lt - lv > best)
+                best = lt - lv;
+            // d(v, t) >= d(v, L) - d(t, L)
+            int vl = to[vi + i];
+            int tl = to[ti + i];
+            if(vl != INFINITY && tl != INFINITY && vl - tl > best)
+                best = vl - tl;
+        }
+        return best;
+    }
+
+    /**
+     * Write the landmark tables to a file, along with a fingerprint of the graph
+     * so they are only ever loaded back for the same graph
+     * @param f the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File f) throws IOException {
+        try(FileChannel out = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            ByteBuffer header = ByteBuffer.allocate(4 * 4 + 8);
+            header.putInt(MAGIC).putInt(VERSION).putInt(graph.vertexCount()).putInt(landmarks.length);
+            header.putLong(fingerprint(graph));
+            header.flip();
+            while(header.hasRemaining())
+                out.write(header);
+            writeInts(out, landmarks);
+            writeInts(out, from);
+            writeInts(out, to);
+        }
+    }
+
+    /**
+     * Read landmark tables written by save
+     * @param f the file to read
+     * @param g the graph the tables were computed for
+     * @return the landmark index
+     * @throws IOException if the file cannot be read, is not a landmark file,
+     *   or was computed for a different graph
+     */
+    public static LandmarkIndex load(File f, IndexedGraph g) throws IOException {
+        try(FileChannel in = FileChannel.open(f.toPath(), StandardOpenOption.READ)){
+            ByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if(buffer.remaining() < 4 * 4 + 8 || buffer.getInt() != MAGIC)
+                throw new IOException(f + " is not a landmark file");
+            if(buffer.getInt() != VERSION)
+                throw new IOException(f + " has an unsupported landmark file version");
+            int n = buffer.getInt();
+            int k = buffer.getInt();
+            if(n != g.vertexCount() || buffer.getLong() != fingerprint(g))
+                throw new IOException(f + " was computed for a different graph");
+            if(k < 0 || k > n || buffer.remaining() != 4L * (k + 2L * n * k))
+                throw new IOException(f + " is truncated or corrupt");
+            IntBuffer ints = buffer.asIntBuffer();
+            int[] landmarks = new int[k];
+            int[] from = new int[n * k];
+            int[] to = new int[n * k];
+            ints.get(landmarks);
+            ints.get(from);
+            ints.get(to);
+            for(int l: landmarks)
+                if(l < 0 || l >= n)
+                    throw new IOException(f + " is truncated or corrupt");
+            return new LandmarkIndex(g, landmarks, from, to);
+        }
+    }
+
+    // helper that writes an int array through a bounded buffer
+    private static void writeInts(FileChannel out, int[] a) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Math.min(CHUNK, Math.max(1, a.length)));
+        for(int i = 0; i < a.length; i += CHUNK){
+            int len = Math.min(CHUNK, a.length - i);
+            buffer.clear();
+            buffer.asIntBuffer().put(a, i, len);
+            buffer.limit(4 * len);
+            while(buffer.hasRemaining())
+                out.write(buffer);
+        }
+    }
+
+    // checksum of the labels and edges of g in id order, so tables are never used on another graph
+    static long fingerprint(IndexedGraph g){
+        CRC32 crc = new CRC32();
+        ByteBuffer row = ByteBuffer.allocate(4 * CHUNK);
+        for(int v = 0; v < g.vertexCount(); v++){
+            g.vertexAt(v).updateLabel(crc);
+            int[] targets = g.targets(v);
+            int[] weights = g.weights(v);
+            row.clear();
+            row.putInt(g.edgeEnd(v) - g.edgeStart(v));
+            for(int e = g.edgeStart(v); e < g.edgeEnd(v); e++){
+                if(row.remaining() < 8){
+                    crc.update(row.array(), 0, row.position());
+                    row.clear();
+                }
+                row.putInt(targets[e]).putInt(weights[e]);
+            }
+            crc.update(row.array(), 0, row.position());
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,223 @@
+import java.util.Arrays;
+
+/**
+ * A forest of rooted trees over int nodes, each node holding an int value,
+ * kept as a link-cut tree: every tree is split into preferred paths stored
+ * in splay trees keyed by depth. Linking, cutting, connectivity and the
+ * largest value on the path between two nodes all take O(log n) amortized.
+ * Edges of a graph are represented by nodes of their own placed between
+ * their ends, so path maxima run over edge values.
+ */
+class LinkCutTree {
+    // splay tree children, parent in the splay tree or path parent, and value of each node
+    private int[] left;
+    private int[] right;
+    private int[] parent;
+    private int[] value;
+    // node with the largest value in the splay subtree of each node
+    private int[] max;
+    // children of the node still to be swapped, set when its path is reversed
+    private boolean[] flip;
+    private int[] stack = new int[16];
+
+    /**
+     * Creates a forest of single nodes with value -1
+     * @param capacity the number of nodes
+     */
+    LinkCutTree(int capacity){
+        left = new int[0];
+        right = left;
+        parent = left;
+        value = left;
+        max = left;
+        flip = new boolean[0];
+        grow(capacity);
+    }
+
+    /**
+     * Add single nodes with value -1 until there are capacity nodes
+     * @param capacity the number of nodes
+     */
+    void grow(int capacity){
+        int old = left.length;
+        if(capacity <= old)
+            return;
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        value = Arrays.copyOf(value, capacity);
+        max = Arrays.copyOf(max, capacity);
+        flip = Arrays.copyOf(flip, capacity);
+        for(int x = old; x < capacity; x++){
+            left[x] = right[x] = parent[x] = -1;
+            value[x] = -1;
+            max[x] = x;
+        }
+    }
+
+    void setValue(int x, int v){
+        access(x);
+        value[x] = v;
+        pull(x);
+    }
+
+    /**
+     * Join the trees of x and y by an edge between them
+     * @param x a node
+     * @param y a node in another tree
+     */
+    void link(int x, int y){
+        makeRoot(x);
+        parent[x] = y;
+    }
+
+    /**
+     * Hang x below y in O(1), for building a forest top down. Only valid while
+     * x is a single node tree or has only had nodes hung below it this way.
+     * @param x the root of a tree
+     * @param y a node in another tree
+     */
+    void attach(int x, int y){
+        parent[x] = y;
+    }
+
+    /**
+     * Remove the edge between x and y
+     * @param x a node
+     * @param y a node joined to x by an edge
+     */
+    void cut(int x, int y){
+        makeRoot(x);
+        access(y);
+        // x is now the only node above y on the path, so it is y's left child
+        left[y] = -1;
+        parent[x] = -1;
+        pull(y);
+    }
+
+    boolean connected(int x, int y){
+        return x == y || findRoot(x) == findRoot(y);
+    }
+
+    /**
+     * Return the node with the largest value on the tree path between x and y
+     * @param x a node
+     * @param y a node in the same tree
+     * @return a node on the path, x and y included
+     */
+    int pathMax(int x, int y){
+        makeRoot(x);
+        access(y);
+        return max[y];
+    }
+
+    // make x the root of its tree by reversing the path from the old root to it
+    private void makeRoot(int x){
+        access(x);
+        flip[x] = !flip[x];
+    }
+
+    private int findRoot(int x){
+        access(x);
+        push(x);
+        while(left[x] != -1){
+            x = left[x];
+            push(x);
+        }
+        splay(x);
+        return x;
+    }
+
+    // make the path from the root to x preferred, leaving x at the root of its splay tree
+    private void access(int x){
+        int last = -1;
+        for(int y = x; y != -1; y = parent[y]){
+            splay(y);
+            right[y] = last;
+            pull(y);
+            last = y;
+        }
+        splay(x);
+    }
+
+    private boolean isSplayRoot(int x){
+        int p = parent[x];
+        return p == -1 || (left[p] != x && right[p] != x);
+    }
+
+    private void splay(int x){
+        // push pending flips down from the splay root before rotating
+        int depth = 0;
+        for(int y = x; ; y = parent[y]){
+            if(depth == stack.length)
+                stack = Arrays.copyOf(stack, depth * 2);
+            stack[depth++] = y;
+            if(isSplayRoot(y))
+                break;
+        }
+        while(depth > 0)
+            push(stack[--depth]);
+
+        while(!isSplayRoot(x)){
+            int p = parent[x];
+            if(!isSplayRoot(p)){
+                int g = parent[p];
+                // zig-zig rotates the parent first, zig-zag rotates x twice
+                if((left[g] == p) == (left[p] == x))
+                    rotate(p);
+                else
+                    rotate(x);
+            }
+            rotate(x);
+        }
+    }
+
+    // lift x above its parent
+    private void rotate(int x){
+        int p = parent[x];
+        int g = parent[p];
+        if(!isSplayRoot(p)){
+            if(left[g] == p)
+                left[g] = x;
+            else
+                right[g] = x;
+        }
+        parent[x] = g;
+        if(left[p] == x){
+            left[p] = right[x];
+            if(right[x] != -1)
+                parent[right[x]] = p;
+            right[x] = p;
+        }else{
+            right[p] = left[x];
+            if(left[x] != -1)
+                parent[left[x]] = p;
+            left[x] = p;
+        }
+        parent[p] = x;
+        pull(p);
+        pull(x);
+    }
+
+    private void push(int x){
+        if(!flip[x])
+            return;
+        int t = left[x];
+        left[x] = right[x];
+        right[x] = t;
+        if(left[x] != -1)
+            flip[left[x]] = !flip[left[x]];
+        if(right[x] != -1)
+            flip[right[x]] = !flip[right[x]];
+        flip[x] = false;
+    }
+
+    private void pull(int x){
+        int m = x;
+        if(left[x] != -1 && value[max[left[x]]] > value[m])
+            m = max[left[x]];
+        if(right[x] != -1 && value[max[right[x]]] > value[m])
+            m = max[right[x]];
+        max[x] = m;
+    }
+}
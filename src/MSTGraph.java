@@ -1,3 +1,4 @@
+import java.io.*;
 import java.util.*;
 
 /**
@@ -7,11 +8,12 @@ import java.util.*;
  * Assumes that we do not have negative cost edges in the graph.
  */
 public class MSTGraph implements Graph {
-    // store the adjacency list as a map of maps, where Map of vertex --> Map of vertex --> weight
-    // this allows O(1) lookup for getting all vertices and adjacencies
-    private HashMap<Vertex, HashMap<Vertex, Integer>> adjacencyList;
-    // store the set of all the edges in the graph, makes getting collection of vertices O(1)
-    private HashSet<Edge> edgeSet;
+    // vertices and edges as int rows, each undirected edge stored once in the direction it was given
+    private final GraphCore core;
+    // one reusable dijkstra engine per querying thread
+    private final ThreadLocal<ShortestPathEngine> engines = new ThreadLocal<>();
+    // the spanning forest kept up to date by edge changes, once someone asks for it
+    private DynamicMinimumSpanningTree spanningTree;
 
     /**
      * Creates a MyGraph object with the given collection of vertices
@@ -20,61 +22,35 @@ public class MSTGraph implements Graph {
      * @param e a collection of the edges in this graph
      */
     public MSTGraph(Collection<Vertex> v, Collection<Edge> e){
-        // handle if client gives null values
-        if(v == null || e == null)
-            throw new IllegalArgumentException("Parameters can't be null ");
-
-        // initialize a new hashmap to store the adjacency list
-        adjacencyList = new HashMap<>();
-        // initialize a new hashset to store all the edges in the graph which makes O(1) to get all edges space trade off
-        edgeSet = new HashSet<>();
-
-        //iterate through the vertices and add them to the adjacency list
-
-        for(Vertex vertex: v){
-            adjacencyList.put(vertex, new HashMap<>());
-        }
-
-        // iterate through the edges and add the adjacencies to the list
-        for(Edge edge: e){
-            // throw exception if weight is negative
-            if(edge.getWeight() < 0)
-                throw new IllegalArgumentException("Edge weight cannot be negative");
-            // throw exception if the from or to vertex is not in the graph
-            if(!adjacencyList.containsKey(edge.getSource()))
-                throw new NoSuchElementException("Source vertex " + edge.getSource() + " is not in the graph");
-            if(!adjacencyList.containsKey(edge.getDestination()))
-                throw new NoSuchElementException("Destination vertex " + edge.getDestination() + " is not in the graph");
-
-            // add the adjacency
-            // KRUSKAL MODIFICATION TO MAKE UNDIRECTED, don't add twice in this way we only take the first arbitrary edge given
-            if(edgeCost(edge.getSource(), edge.getDestination()) == -1 && edgeCost(edge.getDestination(), edge.getSource()) == -1){
-                addAdjacency(edge.getSource(), edge.getDestination(), edge.getWeight());
-                // add the edge to the set of edges which makes getEdges O(1)
-                edgeSet.add(edge);
-            }
-
-
-
-        }
-
+        // KRUSKAL MODIFICATION TO MAKE UNDIRECTED, only the first edge given between two vertices is kept
+        core = new GraphCore(v, e, false);
     }
 
-    // helper to add an adjacency for a source and destination with a weight
-    // throws illegal argument exception if the
-    private void addAdjacency(Vertex source, Vertex destination, int weight) throws IllegalArgumentException{
+    // used by the loader and openSnapshot, whose edges are already in int form
+    MSTGraph(GraphCore core){
+        this.core = core;
+    }
 
-        // add a new HashMap if the source vertex doesn't have one
-        adjacencyList.putIfAbsent(source, new HashMap<>());
+    /**
+     * Open a graph written by saveSnapshot. The file is memory-mapped and
+     * checked against its checksum instead of validating every edge again.
+     * @param f the snapshot file
+     * @return the graph
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static MSTGraph openSnapshot(File f) throws IOException {
+        // the snapshot is checked to be undirected, so its rows hold each edge once
+        return new MSTGraph(new GraphCore(GraphSnapshot.read(f, false), false));
+    }
 
-        if(adjacencyList.get(source).containsKey(destination)){ // check if the destination is already in the adjacency
-            // throw exception if the weight of the adjacency is different
-            if(adjacencyList.get(source).get(destination) != weight)
-                throw new IllegalArgumentException("Non equal duplicate edges");
-        }else {
-            //System.out.println("adding destination and weight");
-            adjacencyList.get(source).put(destination, weight);
-        }
+    /**
+     * Write this graph to a binary snapshot that openSnapshot can load
+     * much faster than the text files can be parsed.
+     * @param f the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void saveSnapshot(File f) throws IOException {
+        GraphSnapshot.write(index(), false, f);
     }
 
     /**
@@ -82,9 +58,8 @@ public class MSTGraph implements Graph {
      * @return the vertices as a collection (which is anything iterable)
      */
     public Collection<Vertex> vertices() {
-        // return the an unmodifiable key set of all the vertices in the adjacency list O(1)!
-        // This assures that a client cannot modify the set that they are given
-        return Collections.unmodifiableSet(adjacencyList.keySet());
+        // a read-only view over the vertex ids, so a client cannot modify what they are given
+        return core.vertices();
     }
 
     /**
@@ -92,9 +67,8 @@ public class MSTGraph implements Graph {
      * @return the edges as a collection (which is anything iterable)
      */
     public Collection<Edge> edges() {
-        // return an unmodifiable set of all the edges
-        // because we make the space trade off of keeping all the edges in the graph, this is O(1)
-        return Collections.unmodifiableSet(edgeSet);
+        // a read-only view that creates the Edge objects as it is iterated
+        return core.edges();
     }
 
     /**
@@ -107,13 +81,10 @@ public class MSTGraph implements Graph {
      */
     public Collection<Vertex> adjacentVertices(Vertex v) {
         // throw the condition if v does not exist
-        //System.out.println(this.vertices());
-        if(!adjacencyList.containsKey(v))
+        int id = core.indexOf(v);
+        if(id < 0)
             throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
-        // return a new empty hashSet if the vertex doesn't have one
-        if(adjacencyList.get(v) == null)
-            return new HashSet<>();
-        return Collections.unmodifiableSet(adjacencyList.get(v).keySet());
+        return core.adjacentVertices(id);
     }
 
     /**
@@ -127,15 +98,98 @@ public class MSTGraph implements Graph {
      */
     public int edgeCost(Vertex a, Vertex b) {
         // throw exception if a or b do not exist
-        if(!adjacencyList.containsKey(a) || !adjacencyList.containsKey(b))
+        int s = core.indexOf(a);
+        int d = core.indexOf(b);
+        if(s < 0 || d < 0)
             throw new IllegalArgumentException("Vertex does not exist in graph");
-        // look up if the adjacency is there
-        Integer weight = adjacencyList.get(a).get(b);
-        if(weight == null)
+        // binary search the row of a
+        return core.weight(s, d);
+    }
+
+    /**
+     * Add the edge e to the graph, which treats it as undirected. The spanning
+     * forest returned by spanningTree is updated right away.
+     * @param e the edge to add
+     * @return true if the graph changed, false if it already had the edge
+     * @throws IllegalArgumentException if the weight is negative or the graph
+     *   joins the same vertices with a different weight
+     * @throws NoSuchElementException if an end of e is not in the graph
+     */
+    public boolean addEdge(Edge e) {
+        if(e == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        if(e.getWeight() < 0)
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        if(!core.contains(e.getSource()))
+            throw new NoSuchElementException("Source vertex " + e.getSource() + " is not in the graph");
+        if(!core.contains(e.getDestination()))
+            throw new NoSuchElementException("Destination vertex " + e.getDestination() + " is not in the graph");
+        Edge old = stored(e.getSource(), e.getDestination());
+        if(old != null){
+            if(old.getWeight() != e.getWeight())
+                throw new IllegalArgumentException("Non equal duplicate edges");
+            return false;
+        }
+        core.put(core.indexOf(e.getSource()), core.indexOf(e.getDestination()), e.getWeight());
+        if(spanningTree != null)
+            spanningTree.edgeAdded(e);
+        return true;
+    }
+
+    /**
+     * Remove the edge between a and b, in whichever direction it was added
+     * @param a one end of the edge
+     * @param b the other end
+     * @return the weight of the removed edge, or -1 if there was no such edge
+     * @throws IllegalArgumentException if a or b do not exist.
+     */
+    public int removeEdge(Vertex a, Vertex b) {
+        if(!core.contains(a) || !core.contains(b))
+            throw new IllegalArgumentException("Vertex does not exist in graph");
+        Edge old = stored(a, b);
+        if(old == null)
             return -1;
-        else
-            return weight;
+        core.remove(core.indexOf(old.getSource()), core.indexOf(old.getDestination()));
+        if(spanningTree != null)
+            spanningTree.edgeRemoved(a, b);
+        return old.getWeight();
+    }
+
+    /**
+     * Change the weight of the edge between a and b, in whichever direction it was added
+     * @param a one end of the edge
+     * @param b the other end
+     * @param weight the new weight
+     * @return the old weight
+     * @throws IllegalArgumentException if a or b do not exist or the weight is negative
+     * @throws NoSuchElementException if there is no edge between a and b
+     */
+    public int updateWeight(Vertex a, Vertex b, int weight) {
+        if(weight < 0)
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        if(!core.contains(a) || !core.contains(b))
+            throw new IllegalArgumentException("Vertex does not exist in graph");
+        Edge old = stored(a, b);
+        if(old == null)
+            throw new NoSuchElementException("No edge between " + a + " and " + b);
+        if(old.getWeight() != weight){
+            Edge e = new Edge(old.getSource(), old.getDestination(), weight);
+            core.put(core.indexOf(e.getSource()), core.indexOf(e.getDestination()), weight);
+            if(spanningTree != null)
+                spanningTree.weightChanged(e, old.getWeight());
+        }
+        return old.getWeight();
+    }
 
+    // helper to find the edge between a and b as it was added, or null if there is none
+    private Edge stored(Vertex a, Vertex b){
+        int s = core.indexOf(a);
+        int d = core.indexOf(b);
+        int w = core.weight(s, d);
+        if(w != -1)
+            return new Edge(a, b, w);
+        w = core.weight(d, s);
+        return w == -1 ? null : new Edge(b, a, w);
     }
 
     /**
@@ -150,194 +204,83 @@ public class MSTGraph implements Graph {
      * @throws IllegalArgumentException if a or b does not exist.
      */
     public Path shortestPath(Vertex a, Vertex b) {
-        if(!adjacencyList.containsKey(a) || !adjacencyList.containsKey(b)){
+        if(!core.contains(a) || !core.contains(b)){
             throw new IllegalArgumentException("Vertex does not exist in the graph");
         }
+        // run dijkstra on this thread's engine, which follows edges in the direction they were given
+        return engine().shortestPath(a, b);
+    }
 
-        // initialize a priority queue of vertex wrappers
-        PriorityQueue<VertexWrapper> queue = new PriorityQueue<>();
-        // initialize a map to store the distance of each vertex
-        HashMap<Vertex, Integer> dist = new HashMap<>();
-        // initialize a map to store the back paths
-        HashMap<Vertex, Vertex> prev = new HashMap<>();
-        HashSet<Vertex> visited = new HashSet<>();
-
-        // set all the distances of the vertices to be infinity
-        for(Vertex v : adjacencyList.keySet()){
-            dist.put(v, Integer.MAX_VALUE);
-            prev.put(v, null);
-        }
-        // re-update the cost of start to be 0
-        dist.put(a, 0);
-
-        // insert the source into the queue
-        queue.add(new VertexWrapper(a, 0));
-
-        // main dijkstra loop
-        while(!queue.isEmpty()) {
-            // remove the top item
-            VertexWrapper tmp = queue.poll();
-            // unwrap it
-            Vertex u = tmp.getVertex();
-
-            // break out of the loop if we found the destination
-            if(u.equals(b)){
-                break; // <============== BREAK HERE
-            }
-
-            // only visit it if we haven't already
-            if (!visited.contains(u)) {
-                // check all the adjacencies
-                for (Vertex v : adjacentVertices(u)) {
-                    // calculate the alternative distance and see if it's less than what we have stored
-                    int alt = dist.get(u) + edgeCost(u, v);
-                    if (alt < dist.get(v)) {
-                        // update the cost and back path
-                        dist.put(v, alt);
-                        prev.put(v, u);
-                        // reinsert a wrapper
-                        queue.add(new VertexWrapper(v, alt));
-                    }
-                }
-                // mark it as visited
-                visited.add(u);
-            }
-        }
+    // helper to get the compact id-indexed copy of the graph that searches run on
+    CompactGraph index(){
+        return core.index();
+    }
 
+    // the rows the spanning tree algorithms read
+    GraphCore core(){
+        return core;
+    }
 
-        // find the path from the destination vertex back to the start
-        Deque<Vertex> pathStack = new ArrayDeque<>();
-        // get a reference for path
-        Vertex curr = b;
-        while(prev.get(curr) != null){
-            pathStack.push(curr); // push to stack because we need to invert it
-            curr = prev.get(curr); // get the next back path
-        }
-        // add the last one
-        pathStack.push(curr);
-        // return null if the path is unconnected
-        if(!pathStack.peek().equals(a)){
-            return null;
-        }
-        int cost = dist.get(b);
-        List<Vertex> path = new LinkedList<>();
-        while(!pathStack.isEmpty()){
-            path.add(pathStack.pop());
+    // helper to get the calling thread's search engine, creating it again once the edges have changed
+    private ShortestPathEngine engine(){
+        ShortestPathEngine engine = engines.get();
+        CompactGraph idx = index();
+        if(engine == null || engine.graph() != idx){
+            engine = new ShortestPathEngine(idx, QueueType.AUTO);
+            engines.set(engine);
         }
-
-        return new Path(path, cost);
-
+        return engine;
     }
 
+    /**
+     * Return a minimum spanning tree of this graph, or a minimum spanning forest
+     * if it is not connected. Runs Filter-Kruskal, which sorts only the edges it
+     * cannot rule out and stops as soon as the tree is complete.
+     * @return the edges of the tree
+     */
     public Set<Edge> kruskalMST(){
-        // initialize a priority queue with all the edges, utilizes Floyd's method
-        PriorityQueue<Edge> queue = new PriorityQueue<>(edgeSet);
-
-        // create a new DisjointSet
-        DisjointSet ds = new DisjointSet(vertices().size());
-
-        // set up the mapping of Vertex to it's representation in the disjoint set
-        HashMap<Vertex, Integer> indexMap = new HashMap<>();
-        int i = 0;
-        for(Vertex v: vertices()){
-            indexMap.put(v, i);
-            i++;
-        }
-
-        // keep a set of the spanning tree
-        Set<Edge> span = new HashSet<>();
-
-        while(!queue.isEmpty()){
-            // get the next lowest cost edge from the queue
-            Edge e = queue.poll();
-
-            // union disjoint sets and add to our tracked span
-            int si = indexMap.get(e.getSource());
-            int di = indexMap.get(e.getDestination());
-            if(ds.find(si) != ds.find(di)){
-                ds.union(si,di);
-                // add edge to our span
-                span.add(e);
-            }
-        }
-        return span;
-//        // this is kinda janky
-//        int cost = 0;
-//        LinkedList<Vertex> path = new LinkedList<>();
-//        for(Edge e: span){
-//            path.add(e.getSource());
-//            path.add(e.getDestination());
-//            cost += e.getWeight();
-//        }
-//
-//        return new Path(path, cost);
+        return MinimumSpanningTree.filterKruskal(this);
     }
 
-    class DisjointSet {
-        int[] partition;
-
-        DisjointSet(int numElements){
-            partition = new int[numElements];
-            for(int i = 0; i< partition.length; i++){
-                partition[i] = -1;
-            }
-        }
-
-        public void union(int v1, int v2){
-            // find the roots of v1 and v2 to keep the abstraction to client
-            int root1 = find(v1);
-            int root2 = find(v2);
-
-            // if root2 is taller make it the new overall root (we don't want to make our taller set even taller)
-            // update the size of the new overall root to include the older tree size
-            if(partition[root2] < partition[root1]){
-                partition[root2] += partition[root1];
-                partition[root1] = root2;
-            }else{ // root 1 is taller
-                partition[root1] += partition[root2];
-                partition[root2] = root1;
-            }
-        }
-
-        public int find(int v) {
-            if(partition[v] < 0){ // if the set is already a root, return it
-                return v;
-            }else{
-                // Find out who the root is; compress path by making the root x's parent.
-                partition[v] = find(partition[v]);
-                return partition[v];// Return the root
-            }
-        }
+    /**
+     * Return the minimum spanning forest of this graph as a structure that
+     * addEdge, removeEdge and updateWeight keep minimal from then on, each
+     * in far less time than computing the forest again
+     * @return the forest
+     */
+    public DynamicMinimumSpanningTree spanningTree(){
+        if(spanningTree == null)
+            spanningTree = new DynamicMinimumSpanningTree(this);
+        return spanningTree;
     }
 
-    /*
-    Wrapper class for vertex, keeps the current cost of the distance to it
-    allows for ordering in a priority queue by implementing the comparable interface
+    /**
+     * Return a minimum spanning tree of this graph, or a minimum spanning forest
+     * if it is not connected, running Prim's algorithm on dense graphs and
+     * Filter-Kruskal on the rest
+     * @return the edges of the tree
      */
-    class VertexWrapper implements Comparable<VertexWrapper>{
-        private Vertex vertex;
-        private Integer cost;
-
-        // construct a vertex wrapper with cost and vertex
-        VertexWrapper(Vertex vertex, Integer cost){
-            this.vertex = vertex;
-            this.cost = cost;
-        }
-
-        // defines the compareTo in order to implement comparable for ordering in priority queue
-        @Override
-        public int compareTo(VertexWrapper o) {
-            return this.cost - o.getCost();
-        }
-
-        // return the cost
-        public Integer getCost(){
-            return this.cost;
-        }
-        public Vertex getVertex(){
-            return this.vertex;
-        }
+    public Set<Edge> minimumSpanningTree(){
+        return MinimumSpanningTree.of(this);
+    }
 
+    /**
+     * Return a minimum spanning tree of this graph, or a minimum spanning forest
+     * if it is not connected, found by Prim's algorithm on an indexed d-ary heap.
+     * Matches kruskalMST when edge weights are distinct; with ties it may pick
+     * another tree of the same weight.
+     * @return the edges of the tree
+     */
+    public Set<Edge> primMST(){
+        return MinimumSpanningTree.prim(this);
     }
 
+    /**
+     * Return the same tree as kruskalMST, found by Boruvka's algorithm with each
+     * round's edge scan and merges spread over the threads of the common ForkJoinPool
+     * @return the edges of the tree
+     */
+    public Set<Edge> boruvkaMST(){
+        return MinimumSpanningTree.boruvka(this);
+    }
 }
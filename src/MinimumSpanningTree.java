@@ -0,0 +1,335 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Minimum spanning forest algorithms over the edges of a graph, read as
+ * undirected. Kruskal and Boruvka number the edges and compare them by
+ * (weight, number), so ties are broken the same way in both and they return
+ * the same forest. With distinct weights that is the one minimum spanning
+ * forest, which Prim finds as well.
+ * <ul>
+ * <li>Filter-Kruskal partitions the edges around a pivot weight, solves the
+ * light half, then drops every heavy edge whose ends are already connected
+ * before solving the rest. Most heavy edges are never sorted, and the search
+ * stops as soon as the tree is complete.</li>
+ * <li>Boruvka lets every component pick its cheapest outgoing edge in
+ * parallel and merges along all picks at once, so the number of components
+ * at least halves per round. Components are tracked in a lock-free
+ * union-find.</li>
+ * <li>Prim grows one tree at a time from the cheapest edge leaving it, kept
+ * in an indexed d-ary heap over vertex ids. It never sorts the edges, so it
+ * wins on dense graphs. The heap compares weights only, so where weights
+ * tie it may pick a different forest of the same total weight.</li>
+ * </ul>
+ */
+public class MinimumSpanningTree {
+    // ranges this small are sorted instead of partitioned further
+    static final int BASE = 1 << 10;
+    // edge ranges at least this long are filtered or scanned in parallel
+    static final int PARALLEL = 1 << 15;
+    // graphs with at least this many edges per vertex go to Prim
+    static final int DENSE = 8;
+    // widest heap Prim uses
+    static final int MAX_ARITY = 16;
+
+    private final Vertex[] vertices;
+    // ends and weight of every edge, numbered from 0 .. m-1
+    private final int[] src;
+    private final int[] dst;
+    private final int[] weight;
+    private final int n;
+    private final int m;
+
+    // number the vertices and edges of g, leaving out self loops
+    // graphs built on a GraphCore hand over their int rows without creating Edge objects
+    private MinimumSpanningTree(Graph g){
+        int[][] e;
+        if(g instanceof MSTGraph || g instanceof MyGraph){
+            GraphCore core = g instanceof MSTGraph ? ((MSTGraph)g).core() : ((MyGraph)g).core();
+            n = core.vertexCount();
+            vertices = new Vertex[n];
+            for(int v = 0; v < n; v++)
+                vertices[v] = core.vertexAt(v);
+            e = core.edgeArrays();
+        }else{
+            HashMap<Vertex, Integer> ids = new HashMap<>();
+            List<Vertex> order = new ArrayList<>();
+            for(Vertex v: g.vertices())
+                if(ids.putIfAbsent(v, ids.size()) == null)
+                    order.add(v);
+            n = order.size();
+            vertices = order.toArray(new Vertex[n]);
+            e = new int[3][g.edges().size()];
+            int i = 0;
+            for(Edge edge: g.edges()){
+                e[0][i] = ids.get(edge.getSource());
+                e[1][i] = ids.get(edge.getDestination());
+                e[2][i] = edge.getWeight();
+                i++;
+            }
+        }
+        int k = 0;
+        for(int i = 0; i < e[0].length; i++){
+            if(e[0][i] != e[1][i]){
+                e[0][k] = e[0][i];
+                e[1][k] = e[1][i];
+                e[2][k] = e[2][i];
+                k++;
+            }
+        }
+        m = k;
+        src = e[0];
+        dst = e[1];
+        weight = e[2];
+    }
+
+    /**
+     * Return a minimum spanning forest of g, found by Prim if g has at least
+     * DENSE edges per vertex and by Filter-Kruskal otherwise
+     * @param g the graph, whose edges are treated as undirected
+     * @return the edges of the forest
+     */
+    public static Set<Edge> of(Graph g){
+        MinimumSpanningTree mst = new MinimumSpanningTree(g);
+        if(mst.m >= (long)DENSE * mst.n)
+            return mst.result(mst.prim());
+        return mst.result(mst.filterKruskal());
+    }
+
+    /**
+     * Return a minimum spanning forest of g found by Filter-Kruskal
+     * @param g the graph, whose edges are treated as undirected
+     * @return the edges of the forest
+     */
+    public static Set<Edge> filterKruskal(Graph g){
+        MinimumSpanningTree mst = new MinimumSpanningTree(g);
+        return mst.result(mst.filterKruskal());
+    }
+
+    /**
+     * Return a minimum spanning forest of g found by parallel Boruvka
+     * @param g the graph, whose edges are treated as undirected
+     * @return the edges of the forest
+     */
+    public static Set<Edge> boruvka(Graph g){
+        MinimumSpanningTree mst = new MinimumSpanningTree(g);
+        return mst.result(mst.boruvka());
+    }
+
+    /**
+     * Return a minimum spanning forest of g found by Prim's algorithm
+     * @param g the graph, whose edges are treated as undirected
+     * @return the edges of the forest
+     */
+    public static Set<Edge> prim(Graph g){
+        MinimumSpanningTree mst = new MinimumSpanningTree(g);
+        return mst.result(mst.prim());
+    }
+
+    // the edges with the given numbers
+    private Set<Edge> result(IntList chosen){
+        Set<Edge> span = new HashSet<>(chosen.size() * 2);
+        for(int i = 0; i < chosen.size(); i++)
+            span.add(edge(chosen.get(i)));
+        return span;
+    }
+
+    // edge i as it is stored in the graph
+    private Edge edge(int i){
+        return new Edge(vertices[src[i]], vertices[dst[i]], weight[i]);
+    }
+
+    // the sort key of edge i: weight first, number to break ties
+    private long key(int i){
+        return ((long)weight[i] << 32) | i;
+    }
+
+    private IntList filterKruskal(){
+        long[] keys = new long[m];
+        for(int i = 0; i < keys.length; i++)
+            keys[i] = key(i);
+        ArrayUnionFind c = new ArrayUnionFind(n);
+        IntList chosen = new IntList();
+        filterKruskal(keys, 0, keys.length, c, chosen, new Random(keys.length));
+        return chosen;
+    }
+
+    private void filterKruskal(long[] keys, int lo, int hi, ArrayUnionFind c, IntList chosen, Random r){
+        if(chosen.size() == n - 1 || lo >= hi)
+            return;
+        if(hi - lo <= BASE){
+            kruskal(keys, lo, hi, c, chosen);
+            return;
+        }
+        long pivot = median(keys[lo + r.nextInt(hi - lo)], keys[lo + r.nextInt(hi - lo)], keys[lo + r.nextInt(hi - lo)]);
+        // keys up to the pivot to the left
+        int mid = lo;
+        for(int i = lo; i < hi; i++){
+            if(keys[i] <= pivot){
+                long t = keys[i];
+                keys[i] = keys[mid];
+                keys[mid++] = t;
+            }
+        }
+        if(mid == hi){
+            kruskal(keys, lo, hi, c, chosen);
+            return;
+        }
+        filterKruskal(keys, lo, mid, c, chosen, r);
+        hi = filter(keys, mid, hi, c);
+        filterKruskal(keys, mid, hi, c, chosen, r);
+    }
+
+    // sort the keys and take every edge that joins two components
+    private void kruskal(long[] keys, int lo, int hi, ArrayUnionFind c, IntList chosen){
+        Arrays.sort(keys, lo, hi);
+        for(int i = lo; i < hi && chosen.size() < n - 1; i++){
+            int e = (int)keys[i];
+            if(c.union(src[e], dst[e]))
+                chosen.add(e);
+        }
+    }
+
+    // drop the keys of edges inside one component, returning the new end of the range
+    private int filter(long[] keys, int lo, int hi, ArrayUnionFind c){
+        boolean[] keep = new boolean[hi - lo];
+        // finds change only parents, never which root a vertex has, so they can run side by side
+        IntStream range = IntStream.range(lo, hi);
+        if(hi - lo >= PARALLEL)
+            range = range.parallel();
+        range.forEach(i -> {
+            int e = (int)keys[i];
+            keep[i - lo] = c.root(src[e]) != c.root(dst[e]);
+        });
+        int k = lo;
+        for(int i = lo; i < hi; i++)
+            if(keep[i - lo])
+                keys[k++] = keys[i];
+        return k;
+    }
+
+    private static long median(long a, long b, long c){
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private IntList prim(){
+        // every edge is listed in the rows of both its ends
+        int[] offsets = new int[n + 1];
+        for(int e = 0; e < m; e++){
+            offsets[src[e] + 1]++;
+            offsets[dst[e] + 1]++;
+        }
+        for(int v = 0; v < n; v++)
+            offsets[v + 1] += offsets[v];
+        int[] incident = new int[2 * m];
+        int[] next = Arrays.copyOf(offsets, n);
+        for(int e = 0; e < m; e++){
+            incident[next[src[e]]++] = e;
+            incident[next[dst[e]]++] = e;
+        }
+
+        // the heap is as wide as the average row, so decreases stay shallow
+        int arity = Math.max(2, Math.min(MAX_ARITY, n == 0 ? 2 : 2 * m / n));
+        IndexedDaryHeap heap = new IndexedDaryHeap(n, arity);
+        // via[v] is the cheapest edge from the tree to v seen so far
+        int[] via = new int[n];
+        Arrays.fill(via, -1);
+        boolean[] done = new boolean[n];
+        IntList chosen = new IntList();
+        // each untouched vertex starts another tree of the forest
+        for(int root = 0; root < n; root++){
+            if(done[root])
+                continue;
+            heap.insert(root, 0);
+            while(!heap.isEmpty()){
+                int u = heap.pollMin();
+                done[u] = true;
+                if(via[u] >= 0)
+                    chosen.add(via[u]);
+                for(int i = offsets[u]; i < offsets[u + 1]; i++){
+                    int e = incident[i];
+                    int v = src[e] == u ? dst[e] : src[e];
+                    if(done[v])
+                        continue;
+                    if(!heap.contains(v)){
+                        heap.insert(v, weight[e]);
+                        via[v] = e;
+                    }else if(weight[e] < heap.key(v)){
+                        heap.decreaseKey(v, weight[e]);
+                        via[v] = e;
+                    }
+                }
+            }
+        }
+        return chosen;
+    }
+
+    private IntList boruvka(){
+        ConcurrentUnionFind c = new ConcurrentUnionFind(n);
+        // cheapest key leaving each component, indexed by root
+        AtomicLongArray best = new AtomicLongArray(n);
+        int[] live = new int[m];
+        for(int i = 0; i < live.length; i++)
+            live[i] = i;
+        int liveCount = live.length;
+        IntList chosen = new IntList();
+        boolean[] taken = new boolean[m];
+
+        while(liveCount > 0 && chosen.size() < n - 1){
+            for(int v = 0; v < n; v++)
+                best.set(v, Long.MAX_VALUE);
+            final int[] current = live;
+            IntStream range = IntStream.range(0, liveCount);
+            if(liveCount >= PARALLEL)
+                range = range.parallel();
+            // every component finds its cheapest edge to another component
+            range.forEach(i -> {
+                int e = current[i];
+                int a = c.find(src[e]);
+                int b = c.find(dst[e]);
+                if(a == b)
+                    return;
+                long k = key(e);
+                lowerTo(best, a, k);
+                lowerTo(best, b, k);
+            });
+            // merge along every pick; keys are distinct so the picks form a forest
+            range = IntStream.range(0, n);
+            if(n >= PARALLEL)
+                range = range.parallel();
+            range.forEach(v -> {
+                long k = best.get(v);
+                if(k == Long.MAX_VALUE)
+                    return;
+                int e = (int)k;
+                // two components picking the same edge union it once
+                if(c.union(src[e], dst[e]))
+                    taken[e] = true;
+            });
+            // keep the edges still joining different components
+            int k = 0;
+            int before = chosen.size();
+            for(int i = 0; i < liveCount; i++){
+                int e = live[i];
+                if(taken[e]){
+                    chosen.add(e);
+                    taken[e] = false;
+                }else if(c.find(src[e]) != c.find(dst[e])){
+                    live[k++] = e;
+                }
+            }
+            liveCount = k;
+            if(chosen.size() == before)
+                break;
+        }
+        return chosen;
+    }
+
+    // lower best[i] to k unless it is already lower
+    private static void lowerTo(AtomicLongArray best, int i, long k){
+        long old = best.get(i);
+        while(k < old && !best.compareAndSet(i, old, k))
+            old = best.get(i);
+    }
+}
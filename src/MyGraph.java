@@ -1,4 +1,6 @@
+import java.io.*;
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Ethan Anderson
@@ -7,11 +9,26 @@ import java.util.*;
  * Assumes that we do not have negative cost edges in the graph.
  */
 public class MyGraph implements Graph {
-    // store the adjacency list as a map of maps, where Map of vertex --> Map of vertex --> weight
-    // this allows O(1) lookup for getting all vertices and adjacencies
-    private HashMap<Vertex, HashMap<Vertex, Integer>> adjacencyList;
-    // store the set of all the edges in the graph, makes getting collection of vertices O(1)
-    private HashSet<Edge> edgeSet;
+    // vertices and directed edges as int rows, which the searches read in place
+    private final GraphCore core;
+    // incoming edges, kept only while sources are registered
+    private GraphCore reverseCore;
+    // shortest path trees repaired on every edge change
+    private final List<DynamicShortestPaths> dynamicTrees = new ArrayList<>();
+    // number of edge changes so far
+    private volatile long version;
+    // shortest path results in front of shortestPath, null when caching is off
+    private volatile PathCache pathCache;
+    // one reusable dijkstra engine per querying thread
+    private final ThreadLocal<ShortestPathEngine> engines = new ThreadLocal<>();
+    // one reusable bidirectional search per querying thread
+    private final ThreadLocal<BidirectionalSearch> bidirectionalSearches = new ThreadLocal<>();
+    // priority queue the searches run on, AUTO picks one by the largest edge weight
+    private volatile QueueType queueType = QueueType.AUTO;
+    // largest weight an edge change has set, which a bucket queue built before it may not hold
+    private volatile int raisedWeight;
+    // landmark lower bounds that steer shortestPath once preprocessLandmarks or loadLandmarks is called
+    private volatile LandmarkIndex landmarks;
 
     /**
      * Creates a MyGraph object with the given collection of vertices
@@ -20,56 +37,23 @@ public class MyGraph implements Graph {
      * @param e a collection of the edges in this graph
      */
     public MyGraph(Collection<Vertex> v, Collection<Edge> e){
-        // handle if client gives null values
-        if(v == null || e == null)
-            throw new IllegalArgumentException("Parameters can't be null ");
-
-        // initialize a new hashmap to store the adjacency list
-        adjacencyList = new HashMap<>();
-        // initialize a new hashset to store all the edges in the graph which makes O(1) to get all edges space trade off
-        edgeSet = new HashSet<>();
-
-        //iterate through the vertices and add them to the adjacency list
-        // don't initialize the adjacency map to save space
-        for(Vertex vertex: v){
-            adjacencyList.put(vertex, null);
-        }
-
-        // iterate through the edges and add the adjacencies to the list
-        for(Edge edge: e){
-            // throw exception if weight is negative
-            if(edge.getWeight() < 0)
-                throw new IllegalArgumentException("Edge weight cannot be negative");
-            // throw exception if the from or to vertex is not in the graph
-            if(!adjacencyList.containsKey(edge.getSource()))
-                throw new NoSuchElementException("Source vertex " + edge.getSource() + " is not in the graph");
-            if(!adjacencyList.containsKey(edge.getDestination()))
-                throw new NoSuchElementException("Destination vertex " + edge.getDestination() + " is not in the graph");
-
-            // add the adjacency
-            addAdjacency(edge.getSource(), edge.getDestination(), edge.getWeight());
-            // add the edge to the set of edges which makes getEdges O(1)
-            edgeSet.add(edge);
-
-        }
-
+        core = new GraphCore(v, e, true);
     }
 
-    // helper to add an adjacency for a source and destination with a weight
-    // throws illegal argument exception if the
-    private void addAdjacency(Vertex source, Vertex destination, int weight) throws IllegalArgumentException{
-
-        // add a new HashMap if the source vertex doesn't have one
-        adjacencyList.putIfAbsent(source, new HashMap<>());
+    // used by the loader and openSnapshot, whose edges are already in int form
+    MyGraph(GraphCore core){
+        this.core = core;
+    }
 
-        if(adjacencyList.get(source).containsKey(destination)){ // check if the destination is already in the adjacency
-            // throw exception if the weight of the adjacency is different
-            if(adjacencyList.get(source).get(destination) != weight)
-                throw new IllegalArgumentException("Non equal duplicate edges");
-        }else {
-            //System.out.println("adding destination and weight");
-            adjacencyList.get(source).put(destination, weight);
-        }
+    /**
+     * Open a graph written by saveSnapshot. The file is memory-mapped and
+     * checked against its checksum instead of validating every edge again.
+     * @param f the snapshot file
+     * @return the graph
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static MyGraph openSnapshot(File f) throws IOException {
+        return new MyGraph(new GraphCore(GraphSnapshot.read(f, true), true));
     }
 
     /** 
@@ -77,9 +61,8 @@ public class MyGraph implements Graph {
      * @return the vertices as a collection (which is anything iterable)
      */
     public Collection<Vertex> vertices() {
-        // return the an unmodifiable key set of all the vertices in the adjacency list O(1)!
-        // This assures that a client cannot modify the set that they are given
-        return Collections.unmodifiableSet(adjacencyList.keySet());
+        // a read-only view over the vertex ids, so a client cannot modify what they are given
+        return core.vertices();
     }
 
     /** 
@@ -87,9 +70,8 @@ public class MyGraph implements Graph {
      * @return the edges as a collection (which is anything iterable)
      */
     public Collection<Edge> edges() {
-        // return an unmodifiable set of all the edges
-        // because we make the space trade off of keeping all the edges in the graph, this is O(1)
-	    return Collections.unmodifiableSet(edgeSet);
+        // a read-only view that creates the Edge objects as it is iterated
+        return core.edges();
     }
 
     /**
@@ -102,13 +84,10 @@ public class MyGraph implements Graph {
      */
     public Collection<Vertex> adjacentVertices(Vertex v) {
         // throw the condition if v does not exist
-        //System.out.println(this.vertices());
-        if(!adjacencyList.containsKey(v))
+        int id = core.indexOf(v);
+        if(id < 0)
             throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
-        // return a new empty hashSet if the vertex doesn't have one
-        if(adjacencyList.get(v) == null)
-            return new HashSet<>();
-	    return Collections.unmodifiableSet(adjacencyList.get(v).keySet());
+        return core.adjacentVertices(id);
     }
 
     /**
@@ -122,15 +101,165 @@ public class MyGraph implements Graph {
      */
     public int edgeCost(Vertex a, Vertex b) {
         // throw exception if a or b do not exist
-        if(!adjacencyList.containsKey(a) || !adjacencyList.containsKey(b))
+        int s = core.indexOf(a);
+        int d = core.indexOf(b);
+        if(s < 0 || d < 0)
             throw new IllegalArgumentException("Vertex does not exist in graph");
-        // look up if the adjacency is there
-        Integer weight = adjacencyList.get(a).get(b);
-        if(weight == null)
-            return -1;
-        else
-            return weight;
+        // binary search the row of a
+        return core.weight(s, d);
+    }
 
+    /**
+     * Add the edge e to the graph. Searches pick up the change on their next
+     * query and registered shortest path trees are repaired right away.
+     * Not safe to call while other threads are querying the graph.
+     * @param e the edge to add
+     * @return true if the edge was added, false if an equal edge was already there
+     * @throws IllegalArgumentException if the weight is negative or an edge with
+     *   the same endpoints and a different weight exists
+     * @throws NoSuchElementException if the source or destination is not in the graph
+     */
+    public boolean addEdge(Edge e) {
+        if(e == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        if(e.getWeight() < 0)
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        if(!core.contains(e.getSource()))
+            throw new NoSuchElementException("Source vertex " + e.getSource() + " is not in the graph");
+        if(!core.contains(e.getDestination()))
+            throw new NoSuchElementException("Destination vertex " + e.getDestination() + " is not in the graph");
+        int old = edgeCost(e.getSource(), e.getDestination());
+        if(old == e.getWeight())
+            return false;
+        if(old != -1)
+            throw new IllegalArgumentException("Non equal duplicate edges");
+        setEdge(e.getSource(), e.getDestination(), -1, e.getWeight());
+        return true;
+    }
+
+    /**
+     * Remove the edge a -> b from the graph.
+     * Not safe to call while other threads are querying the graph.
+     * @param a the source of the edge
+     * @param b the destination of the edge
+     * @return the weight of the removed edge, or -1 if there was no such edge
+     * @throws IllegalArgumentException if a or b do not exist.
+     */
+    public int removeEdge(Vertex a, Vertex b) {
+        int old = edgeCost(a, b);
+        if(old != -1)
+            setEdge(a, b, old, -1);
+        return old;
+    }
+
+    /**
+     * Change the weight of the edge a -> b.
+     * Not safe to call while other threads are querying the graph.
+     * @param a the source of the edge
+     * @param b the destination of the edge
+     * @param weight the new weight
+     * @return the old weight
+     * @throws IllegalArgumentException if a or b do not exist or the weight is negative
+     * @throws NoSuchElementException if there is no edge from a to b
+     */
+    public int updateWeight(Vertex a, Vertex b, int weight) {
+        if(weight < 0)
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        int old = edgeCost(a, b);
+        if(old == -1)
+            throw new NoSuchElementException("No edge from " + a + " to " + b);
+        if(old != weight)
+            setEdge(a, b, old, weight);
+        return old;
+    }
+
+    /**
+     * Return the number of edge changes made to this graph. It goes up with
+     * every addEdge, removeEdge and updateWeight that changes an edge.
+     * @return the version of the graph
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Put a cache in front of shortestPath(a, b). The cache is emptied on the
+     * first query after an edge change.
+     * @param cache the cache to use, or null to stop caching
+     */
+    public void setPathCache(PathCache cache) {
+        pathCache = cache;
+    }
+
+    /**
+     * Return the cache in front of shortestPath, for its statistics
+     * @return the cache, or null if caching is off
+     */
+    public PathCache pathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Compute the shortest paths from source and keep them correct as edges
+     * change, repairing only the part of the tree a change affects.
+     * Landmarks computed by preprocessLandmarks are dropped on the first edge change.
+     * @param source the starting vertex
+     * @return the tree, which follows this graph until unregistered
+     * @throws IllegalArgumentException if source does not exist.
+     */
+    public DynamicShortestPaths registerSource(Vertex source) {
+        ShortestPathTree tree = shortestPathTree(source);
+        // build the incoming edges the repairs search through
+        if(reverseCore == null)
+            reverseCore = core.reverse();
+        DynamicShortestPaths d = new DynamicShortestPaths(this, core.rows(), core.indexOf(source), tree);
+        dynamicTrees.add(d);
+        return d;
+    }
+
+    /**
+     * Stop repairing a tree returned by registerSource
+     * @param tree the tree
+     */
+    public void unregisterSource(DynamicShortestPaths tree) {
+        dynamicTrees.remove(tree);
+        if(dynamicTrees.isEmpty())
+            reverseCore = null;
+    }
+
+    // the out-edges as rows over the vertex ids of index
+    GraphCore core(){
+        return core;
+    }
+
+    // the in-edges as rows over the same ids, only while sources are registered
+    GraphCore reverseCore(){
+        return reverseCore;
+    }
+
+    // helper that replaces the edge a -> b of weight oldWeight (-1 if none) with one of newWeight (-1 to remove it)
+    // then drops the landmarks and repairs the registered trees
+    private void setEdge(Vertex a, Vertex b, int oldWeight, int newWeight){
+        int s = core.indexOf(a);
+        int d = core.indexOf(b);
+        // only the row of a moves; the engines read it in place and the compact
+        // index is copied again only when something asks for it
+        if(newWeight == -1){
+            core.remove(s, d);
+            if(reverseCore != null)
+                reverseCore.remove(d, s);
+        }else{
+            core.put(s, d, newWeight);
+            if(reverseCore != null)
+                reverseCore.put(d, s, newWeight);
+        }
+        if(newWeight > raisedWeight)
+            raisedWeight = newWeight;
+        version++;
+        // the landmark distances may no longer be lower bounds
+        landmarks = null;
+        for(DynamicShortestPaths tree: dynamicTrees)
+            tree.edgeChanged(a, b, oldWeight, newWeight);
     }
 
     /**
@@ -145,191 +274,272 @@ public class MyGraph implements Graph {
      * @throws IllegalArgumentException if a or b does not exist.
      */
     public Path shortestPath(Vertex a, Vertex b) {
-        if(!adjacencyList.containsKey(a) || !adjacencyList.containsKey(b)){
+        if(!core.contains(a) || !core.contains(b)){
             throw new IllegalArgumentException("Vertex does not exist in the graph");
         }
+        // run dijkstra on this thread's engine, which reuses its arrays between queries
+        // A* with the landmark bounds instead if they have been computed
+        PathCache cache = pathCache;
+        if(cache != null)
+            return cache.get(a, b, version, () -> engine().shortestPath(a, b, landmarks));
+        return engine().shortestPath(a, b, landmarks);
+    }
 
-        // initialize a priority queue of vertex wrappers
-        PriorityQueue<VertexWrapper> queue = new PriorityQueue<>();
-        // initialize a map to store the distance of each vertex
-        HashMap<Vertex, Integer> dist = new HashMap<>();
-        // initialize a map to store the back paths
-        HashMap<Vertex, Vertex> prev = new HashMap<>();
-        HashSet<Vertex> visited = new HashSet<>();
-
-        // set all the distances of the vertices to be infinity
-        for(Vertex v : adjacencyList.keySet()){
-            dist.put(v, Integer.MAX_VALUE);
-            prev.put(v, null);
-        }
-        // re-update the cost of start to be 0
-        dist.put(a, 0);
-
-        // insert the source into the queue
-        queue.add(new VertexWrapper(a, 0));
-
-        // main dijkstra loop
-        while(!queue.isEmpty()) {
-            // remove the top item
-            VertexWrapper tmp = queue.poll();
-            // unwrap it
-            Vertex u = tmp.getVertex();
-
-            // break out of the loop if we found the destination
-            if(u.equals(b)){
-                break; // <============== BREAK HERE
-            }
-
-            // only visit it if we haven't already
-            if (!visited.contains(u)) {
-                // check all the adjacencies
-                for (Vertex v : adjacentVertices(u)) {
-                    // calculate the alternative distance and see if it's less than what we have stored
-                    int alt = dist.get(u) + edgeCost(u, v);
-                    if (alt < dist.get(v)) {
-                        // update the cost and back path
-                        dist.put(v, alt);
-                        prev.put(v, u);
-                        // reinsert a wrapper
-                        queue.add(new VertexWrapper(v, alt));
-                    }
-                }
-                // mark it as visited
-                visited.add(u);
-            }
+    /**
+     * Returns the shortest path from a to b in the graph, or null if there is
+     * no such path. Uses A* search steered by the given heuristic, which
+     * settles fewer vertices than Dijkstra's algorithm the better the
+     * heuristic estimates the remaining cost.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param h a heuristic that never overestimates the cost to b, or null for the same search as shortestPath(a, b)
+     * @return a Path where the vertices indicate the path from a to b in order
+     *   and contains a (first) and b (last) and the cost is the cost of
+     *   the path. Returns null if b is not reachable from a. The cost is the same as
+     *   shortestPath(a, b) returns whenever h is admissible.
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b, Heuristic h) {
+        if(!core.contains(a) || !core.contains(b)){
+            throw new IllegalArgumentException("Vertex does not exist in the graph");
         }
+        if(h == null)
+            return shortestPath(a, b);
+        return engine().shortestPath(a, b, h);
+    }
 
-
-        // find the path from the destination vertex back to the start
-        Deque<Vertex> pathStack = new ArrayDeque<>();
-        // get a reference for path
-        Vertex curr = b;
-        while(prev.get(curr) != null){
-            pathStack.push(curr); // push to stack because we need to invert it
-            curr = prev.get(curr); // get the next back path
-        }
-        // add the last one
-        pathStack.push(curr);
-        // return null if the path is unconnected
-        if(!pathStack.peek().equals(a)){
-            return null;
-        }
-        int cost = dist.get(b);
-        List<Vertex> path = new LinkedList<>();
-        while(!pathStack.isEmpty()){
-            path.add(pathStack.pop());
+    /**
+     * Returns the shortest paths from source to every vertex of the graph,
+     * found by a single run of Dijkstra's algorithm. Paths are read from the
+     * tree without searching again.
+     * @param source the starting vertex
+     * @return the shortest path tree rooted at source
+     * @throws IllegalArgumentException if source does not exist.
+     */
+    public ShortestPathTree shortestPathTree(Vertex source) {
+        if(!core.contains(source)){
+            throw new IllegalArgumentException("Vertex does not exist in the graph");
         }
+        ShortestPathEngine engine = engine();
+        int s = engine.graph().indexOf(source);
+        engine.search(s, -1);
+        return ShortestPathTree.of(engine, s);
+    }
 
-        return new Path(path, cost);
+    /**
+     * Returns the cost of the shortest path from every source to every target.
+     * Runs one Dijkstra search per source, each stopping once all targets are
+     * settled, spread over the threads of the common ForkJoinPool with a
+     * search engine per thread.
+     * @param sources the starting vertices
+     * @param targets the destination vertices
+     * @return a flat matrix where entry i * targets.size() + j is the cost from the
+     *   i-th source to the j-th target in iteration order, or -1 if there is no path
+     * @throws IllegalArgumentException if a source or target does not exist,
+     *   or the matrix has more entries than an array can hold.
+     */
+    public int[] distanceMatrix(Collection<Vertex> sources, Collection<Vertex> targets) {
+        if(sources == null || targets == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        if((long)sources.size() * targets.size() > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Distance matrix of " + sources.size() + " x " + targets.size() + " is too large");
+        IndexedGraph idx = core.rows();
+        int[] s = idsOf(idx, sources);
+        int[] t = idsOf(idx, targets);
+        int[] matrix = new int[s.length * t.length];
+        IntStream.range(0, s.length).parallel().forEach(i -> {
+            // each worker thread gets its own engine, so searches never share state
+            ShortestPathEngine engine = engine();
+            engine.searchAll(s[i], t);
+            for(int j = 0; j < t.length; j++)
+                matrix[i * t.length + j] = engine.distance(t[j]);
+        });
+        return matrix;
+    }
 
+    /**
+     * Returns the shortest path of every query. Queries are grouped by source
+     * and each distinct source is searched once, stopping when all of its
+     * destinations are settled; the groups run in parallel on the common
+     * ForkJoinPool with a search engine per thread.
+     * @param queries the (source, destination) pairs
+     * @return the paths in the order of the queries, with null where there is no path
+     * @throws IllegalArgumentException if a source or destination does not exist.
+     */
+    public List<Path> batchShortestPaths(List<PathQuery> queries) {
+        if(queries == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        IndexedGraph idx = core.rows();
+        int[] sources = new int[queries.size()];
+        int[] destinations = new int[queries.size()];
+        // query positions of each distinct source, in order of first appearance
+        HashMap<Integer, IntList> groups = new LinkedHashMap<>();
+        int i = 0;
+        for(PathQuery q: queries){
+            sources[i] = idx.indexOf(q.source);
+            destinations[i] = idx.indexOf(q.destination);
+            if(sources[i] < 0 || destinations[i] < 0)
+                throw new IllegalArgumentException("Vertex does not exist in the graph");
+            groups.computeIfAbsent(sources[i], k -> new IntList()).add(i);
+            i++;
+        }
+        // biggest groups first so no thread is left with a long one at the end
+        List<IntList> order = new ArrayList<>(groups.values());
+        order.sort((x, y) -> y.size() - x.size());
+        Path[] paths = new Path[queries.size()];
+        order.parallelStream().forEach(group -> {
+            int[] targets = new int[group.size()];
+            for(int j = 0; j < targets.length; j++)
+                targets[j] = destinations[group.get(j)];
+            ShortestPathEngine engine = engine();
+            engine.searchAll(sources[group.get(0)], targets);
+            for(int j = 0; j < targets.length; j++)
+                paths[group.get(j)] = engine.path(targets[j]);
+        });
+        return Arrays.asList(paths);
     }
 
-    public Path kruskalMST(){
-        // initialize a priority queue with all the edges, utilizes Floyd's method
-        PriorityQueue<Edge> queue = new PriorityQueue<>(edgeSet);
-
-        // create a new DisjointSet
-        DisjointSet ds = new DisjointSet(vertices());
-
-        Set<Edge> span = new HashSet<>();
-
-        while(!queue.isEmpty()){
-            // get the next lowest cost edge from the queue
-            Edge e = queue.poll();
-            //System.out.println("checking " + e);
-            // union disjoint sets and add to our tracked span
-            if(ds.find(e.getSource()) != ds.find(e.getDestination())){
-                ds.union(e.getSource(), e.getDestination());
-                span.add(e);
-            }
+    // helper to translate vertices into ids of the graph
+    // throws illegal argument exception if a vertex is not in the graph
+    private static int[] idsOf(IndexedGraph idx, Collection<Vertex> vertices){
+        int[] ids = new int[vertices.size()];
+        int i = 0;
+        for(Vertex v: vertices){
+            ids[i] = idx.indexOf(v);
+            if(ids[i] < 0)
+                throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
+            i++;
         }
+        return ids;
+    }
 
-        // this is kinda janky
-        int cost = 0;
-        LinkedList<Vertex> path = new LinkedList<>();
-        for(Edge e: span){
-            path.add(e.getSource());
-            path.add(e.getDestination());
-            cost += e.getWeight();
+    /**
+     * Returns the shortest path from a to b in the graph, or null if there is
+     * no such path, by searching forward from a and backward from b until the
+     * two searches meet. Settles far fewer vertices than shortestPath on large
+     * sparse graphs and finds a path of the same cost.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a Path where the vertices indicate the path from a to b in order
+     *   and contains a (first) and b (last) and the cost is the cost of
+     *   the path. Returns null if b is not reachable from a.
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path bidirectionalShortestPath(Vertex a, Vertex b) {
+        if(!core.contains(a) || !core.contains(b)){
+            throw new IllegalArgumentException("Vertex does not exist in the graph");
+        }
+        BidirectionalSearch search = bidirectionalSearches.get();
+        QueueType type = queueType;
+        if(search == null || search.queueType() != type || search.graph() != index()){
+            // the backward half runs on the reverse adjacency of the index, built on first use
+            search = new BidirectionalSearch(index(), type);
+            bidirectionalSearches.set(search);
         }
+        return search.shortestPath(a, b);
+    }
 
-        return new Path(path, cost);
+    /**
+     * Pick k landmarks farthest apart and compute the distances between every
+     * landmark and every vertex. Afterwards shortestPath runs A* with the
+     * triangle inequality lower bounds these give, which finds the same costs
+     * while settling far fewer vertices.
+     * @param k the number of landmarks
+     * @throws IllegalArgumentException if k is negative
+     */
+    public void preprocessLandmarks(int k) {
+        preprocessLandmarks(k, LandmarkIndex.Selection.FARTHEST);
     }
 
-    class DisjointSet {
-        Map<Vertex, Object> partition;
-        DisjointSet(Collection<Vertex> v){
-            partition = new HashMap<>();
-            // get all the vertices and set their weights to 1
-            for(Vertex vert: vertices()){
-                partition.put(vert, 1);
-            }
-        }
+    /**
+     * Pick k landmarks with the given strategy and compute the distances between
+     * every landmark and every vertex, for shortestPath to use from now on.
+     * @param k the number of landmarks
+     * @param selection how to pick the landmarks
+     * @throws IllegalArgumentException if k is negative
+     */
+    public void preprocessLandmarks(int k, LandmarkIndex.Selection selection) {
+        landmarks = LandmarkIndex.build(core.rows(), k, selection);
+    }
 
-        public void union(Vertex v1, Vertex v2){
-            // find the parent of v1 and v2 (will be O(1) because find implements path compression
-            Vertex p1 = find(v1);
-            Vertex p2 = find(v2);
-            System.out.println("unioning " + v1 + " and " + v2);
-            if((Integer)partition.get(p2) < (Integer)partition.get(p1)){
-                partition.put(p2, (Integer)partition.get(p2) + (Integer)partition.get(p1));
-                partition.put(p1, p2);
-            }else {
-                partition.put(p1, (Integer)partition.get(p1) + (Integer)partition.get(p2));
-                partition.put(p2, p1);
-            }
-        }
+    /**
+     * Write the landmark tables to a file so a later run can load them instead
+     * of preprocessing again.
+     * @param f the file to write
+     * @throws IOException if the file cannot be written
+     * @throws IllegalStateException if no landmarks have been computed or loaded
+     */
+    public void saveLandmarks(File f) throws IOException {
+        LandmarkIndex lm = landmarks;
+        if(lm == null)
+            throw new IllegalStateException("No landmarks to save");
+        lm.save(f);
+    }
 
-        public Vertex find(Vertex v){
-            // find root
-            Object root = v;
-            while(partition.get(root) instanceof Vertex){
-                root = partition.get(root);
-            }
-            if(v.equals(root)){
-                // already a root
-                return (Vertex)root;
-            }else { // compress the path
-                Vertex oldParent = (Vertex)partition.get(v);
-                while(!oldParent.equals(root)){
-                    partition.put(v, root);
-                    v = oldParent;
-                    oldParent = (Vertex)partition.get(v);
-                }
-                //System.out.println("found parent of " + v + "is " + root);
-                return (Vertex)root;
-            }
-        }
+    /**
+     * Read landmark tables written by saveLandmarks for shortestPath to use from now on.
+     * @param f the file to read
+     * @throws IOException if the file cannot be read or was written for a different graph
+     */
+    public void loadLandmarks(File f) throws IOException {
+        landmarks = LandmarkIndex.load(f, core.rows());
     }
 
-    /*
-    Wrapper class for vertex, keeps the current cost of the distance to it
-    allows for ordering in a priority queue by implementing the comparable interface
+    /**
+     * Write this graph to a binary snapshot that openSnapshot can load
+     * much faster than the text files can be parsed.
+     * @param f the file to write
+     * @throws IOException if the file cannot be written
      */
-    class VertexWrapper implements Comparable<VertexWrapper>{
-        private Vertex vertex;
-        private Integer cost;
-
-        // construct a vertex wrapper with cost and vertex
-        VertexWrapper(Vertex vertex, Integer cost){
-            this.vertex = vertex;
-            this.cost = cost;
-        }
+    public void saveSnapshot(File f) throws IOException {
+        GraphSnapshot.write(index(), true, f);
+    }
 
-        // defines the compareTo in order to implement comparable for ordering in priority queue
-        @Override
-        public int compareTo(VertexWrapper o) {
-            return this.cost - o.getCost();
-        }
+    // helper to get the compact id-indexed copy of the graph that bidirectional search,
+    // CompactGraph.of and snapshots run on, built on first use after construction or an edge change
+    // every index shares the vertex ids of the core, so ids stay valid across edge changes
+    CompactGraph index(){
+        return core.index();
+    }
+
+    /**
+     * Choose the priority queue shortest path searches run on. The default,
+     * AUTO, uses Dial's bucket queue when every edge weight is small and a
+     * radix heap otherwise. Every queue type finds the same costs.
+     * @param type the queue type
+     */
+    public void setQueueType(QueueType type) {
+        if(type == null)
+            throw new IllegalArgumentException("Queue type can't be null");
+        queueType = type;
+    }
 
-        // return the cost
-        public Integer getCost(){
-            return this.cost;
+    // helper to get the calling thread's search engine, creating it on first use
+    // or again when the queue type has changed or an edge outgrew its queue since
+    // the engine reads the rows of the core in place, so other edge changes keep it
+    private ShortestPathEngine engine(){
+        ShortestPathEngine engine = engines.get();
+        QueueType type = queueType;
+        if(engine == null || engine.requestedType() != type || !engine.accepts(raisedWeight)){
+            engine = new ShortestPathEngine(core.rows(), type);
+            engines.set(engine);
         }
-        public Vertex getVertex(){
-            return this.vertex;
+        return engine;
+    }
+
+    public Path kruskalMST(){
+        Set<Edge> span = MinimumSpanningTree.filterKruskal(this);
+
+        // this is kinda janky
+        int cost = 0;
+        LinkedList<Vertex> path = new LinkedList<>();
+        for(Edge e: span){
+            path.add(e.getSource());
+            path.add(e.getDestination());
+            cost += e.getWeight();
         }
 
+        return new Path(path, cost);
     }
 
 }
@@ -1,14 +1,20 @@
-
-import java.util.List;
-
-public class Path {
-    // we use public fields fields here since this very simple class is
-    // used only for returning multiple results from shortestPath
-    public final List<Vertex> vertices;
-    public final int cost;
-    
-    public Path(List<Vertex> vertices, int cost) {
-	    this.vertices = vertices;
-	    this.cost = cost;
-    }
-}
+import java.util.Collections;
+import java.util.List;
+
+public class Path {
+    // we use public fields fields here since this very simple class is
+    // used only for returning multiple results from shortestPath
+    // the vertex list is read-only so a Path can be cached and shared between threads
+    public final List<Vertex> vertices;
+    public final int cost;
+    
+    /**
+     * Creates a path. The path takes over the list, which must not be changed afterwards.
+     * @param vertices the vertices of the path in order
+     * @param cost the cost of the path
+     */
+    public Path(List<Vertex> vertices, int cost) {
+	    this.vertices = Collections.unmodifiableList(vertices);
+	    this.cost = cost;
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of shortest path results keyed by (source, destination).
+ * Entries are evicted least recently used first once either the number of
+ * entries or their total weight (the number of vertices on the cached paths)
+ * goes over its limit, and expire after a fixed time to live. Every lookup
+ * passes the graph's version, which must only ever grow; the first lookup
+ * with a newer version empties the cache, so results from an older graph are
+ * never returned, and lookups with an older version bypass the cache.
+ * "No path" results are cached as well. Paths are immutable, so a cached Path
+ * is handed to every caller that asks for it. Thread-safe; searches run
+ * outside the cache's lock.
+ */
+public class PathCache {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlNanos;
+    // access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    // graph version the entries were computed for
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates an empty cache
+     * @param maxEntries the most entries kept
+     * @param maxWeight the most path vertices kept over all entries
+     * @param ttlMillis how long an entry stays valid in milliseconds, or 0 to keep entries until evicted
+     * @throws IllegalArgumentException if a limit is not positive or the time to live is negative
+     */
+    public PathCache(int maxEntries, long maxWeight, long ttlMillis){
+        if(maxEntries <= 0 || maxWeight <= 0 || ttlMillis < 0)
+            throw new IllegalArgumentException("Cache limits must be positive");
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttlMillis * 1000000L;
+    }
+
+    /**
+     * Return the cached shortest path from a to b, running search to find it
+     * and caching the result if it is missing or expired
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param graphVersion the version of the graph searched
+     * @param search finds the path from a to b, or null if there is none
+     * @return the path, or null if there is none
+     */
+    public Path get(Vertex a, Vertex b, long graphVersion, Supplier<Path> search){
+        Key key = new Key(a, b);
+        synchronized(this){
+            if(graphVersion > version)
+                invalidate(graphVersion);
+            if(graphVersion < version){
+                // an older version of the graph, as a pinned snapshot can be, is searched uncached
+                misses++;
+                return search.get();
+            }
+            Entry e = entries.get(key);
+            if(e != null && (ttlNanos == 0 || System.nanoTime() - e.created < ttlNanos)){
+                hits++;
+                return e.path;
+            }
+            if(e != null)
+                remove(key);
+            misses++;
+        }
+        Path path = search.get();
+        synchronized(this){
+            // a result found while the graph changed belongs to no version we can vouch for
+            if(graphVersion == version)
+                put(key, path);
+        }
+        return path;
+    }
+
+    /**
+     * Drop every entry
+     */
+    public synchronized void clear(){
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Return the number of lookups answered from the cache
+     * @return the hit count
+     */
+    public synchronized long hitCount(){
+        return hits;
+    }
+
+    /**
+     * Return the number of lookups that had to search
+     * @return the miss count
+     */
+    public synchronized long missCount(){
+        return misses;
+    }
+
+    /**
+     * Return the fraction of lookups answered from the cache
+     * @return the hit rate, or 0 before the first lookup
+     */
+    public synchronized double hitRate(){
+        return hits + misses == 0 ? 0 : (double)hits / (hits + misses);
+    }
+
+    /**
+     * Return the number of entries evicted to stay within the limits
+     * @return the eviction count
+     */
+    public synchronized long evictionCount(){
+        return evictions;
+    }
+
+    /**
+     * Return the number of times the cache was emptied because the graph changed
+     * @return the invalidation count
+     */
+    public synchronized long invalidationCount(){
+        return invalidations;
+    }
+
+    /**
+     * Return the number of cached entries
+     * @return the size
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * Return the total weight of the cached entries
+     * @return the number of path vertices held
+     */
+    public synchronized long weight(){
+        return weight;
+    }
+
+    public synchronized String toString(){
+        return "PathCache[size=" + entries.size() + ", weight=" + weight + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + ", invalidations=" + invalidations + "]";
+    }
+
+    // helper to drop everything computed for another version of the graph
+    private void invalidate(long graphVersion){
+        if(!entries.isEmpty())
+            invalidations++;
+        clear();
+        version = graphVersion;
+    }
+
+    // helper to add an entry and evict least recently used ones until within the limits
+    private void put(Key key, Path path){
+        int w = path == null ? 1 : path.vertices.size();
+        if(w > maxWeight)
+            return;
+        Entry old = entries.put(key, new Entry(path, w, System.nanoTime()));
+        weight += w - (old == null ? 0 : old.weight);
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while(entries.size() > maxEntries || weight > maxWeight){
+            Entry e = it.next().getValue();
+            it.remove();
+            weight -= e.weight;
+            evictions++;
+        }
+    }
+
+    private void remove(Key key){
+        Entry e = entries.remove(key);
+        if(e != null)
+            weight -= e.weight;
+    }
+
+    // a (source, destination) pair
+    private static class Key {
+        final Vertex a;
+        final Vertex b;
+
+        Key(Vertex a, Vertex b){
+            this.a = a;
+            this.b = b;
+        }
+
+        public int hashCode(){
+            return 31 * a.hashCode() + b.hashCode();
+        }
+
+        public boolean equals(Object o){
+            if(!(o instanceof Key))
+                return false;
+            Key other = (Key)o;
+            return a.equals(other.a) && b.equals(other.b);
+        }
+    }
+
+    // a cached result, path is null when there is no path
+    private static class Entry {
+        final Path path;
+        final int weight;
+        final long created;
+
+        Entry(Path path, int weight, long created){
+            this.path = path;
+            this.weight = weight;
+            this.created = created;
+        }
+    }
+}
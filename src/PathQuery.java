@@ -0,0 +1,25 @@
+/**
+ * A request for the shortest path from source to destination, as passed in
+ * batches to MyGraph.batchShortestPaths.
+ */
+public class PathQuery {
+    // public fields like Path, since this is only a pair of vertices
+    public final Vertex source;
+    public final Vertex destination;
+
+    /**
+     * Creates a query
+     * @param source the starting vertex
+     * @param destination the destination vertex
+     */
+    public PathQuery(Vertex source, Vertex destination) {
+        if(source == null || destination == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        this.source = source;
+        this.destination = destination;
+    }
+
+    public String toString() {
+        return source + " -> " + destination;
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves shortest path queries over a line protocol on a local socket, so a
+ * graph is loaded once and can be driven by load generators.
+ * Each line a client sends is one request:
+ *   start destination    answered by  OK cost micros v1 v2 ... vn
+ *                                  or  NONE micros   if there is no path
+ *   STATS                answered by  STATS requests=.. perSecond=.. meanMicros=.. maxMicros=..
+ *   QUIT                 closes the connection
+ * and anything else is answered by ERROR and a message. micros is the time
+ * the server spent on the request.
+ * Connections are served by a fixed pool of threads. Once every thread is busy
+ * the server stops accepting, so further clients wait in the listen backlog
+ * instead of piling up work inside the server.
+ */
+public class PathServer implements Closeable {
+    private final MyGraph graph;
+    private final Heuristic heuristic;
+    private final ServerSocket server;
+    private final ExecutorService pool;
+    // one permit per connection the pool can serve right now
+    private final Semaphore permits;
+    // connections being served, closed along with the server
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private final long started = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates a server listening on the loopback interface
+     * @param graph the graph to answer queries on
+     * @param h the heuristic queries use, or null for plain shortestPath
+     * @param port the port to listen on, or 0 for any free port
+     * @param maxConnections the most connections served at once
+     * @throws IOException if the port cannot be opened
+     * @throws IllegalArgumentException if maxConnections is not positive
+     */
+    public PathServer(MyGraph graph, Heuristic h, int port, int maxConnections) throws IOException {
+        if(graph == null)
+            throw new IllegalArgumentException("Graph can't be null");
+        if(maxConnections <= 0)
+            throw new IllegalArgumentException("maxConnections must be positive");
+        this.graph = graph;
+        this.heuristic = h;
+        server = new ServerSocket(port, maxConnections, InetAddress.getLoopbackAddress());
+        pool = Executors.newFixedThreadPool(maxConnections);
+        permits = new Semaphore(maxConnections);
+    }
+
+    /**
+     * Return the port the server listens on
+     * @return the port
+     */
+    public int port(){
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accept and serve connections until the server is closed
+     * @throws IOException if accepting fails for a reason other than closing
+     */
+    public void serve() throws IOException {
+        while(!closed){
+            try{
+                permits.acquire();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if(closed){
+                permits.release();
+                return;
+            }
+            Socket s;
+            try{
+                s = server.accept();
+            }catch(IOException e){
+                permits.release();
+                if(closed)
+                    return;
+                throw e;
+            }
+            open.add(s);
+            try{
+                // close may have swept the open sockets before s was added
+                if(closed)
+                    throw new RejectedExecutionException();
+                pool.execute(() -> {
+                    try{
+                        handle(s);
+                    }finally{
+                        open.remove(s);
+                        permits.release();
+                    }
+                });
+            }catch(RejectedExecutionException e){
+                open.remove(s);
+                s.close();
+                permits.release();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop accepting connections and close the ones being served
+     * @throws IOException if the listening socket cannot be closed
+     */
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        // threads blocked reading from a client only wake when its socket closes
+        for(Socket s: open){
+            try{
+                s.close();
+            }catch(IOException e){
+                // closing anyway
+            }
+        }
+        pool.shutdownNow();
+        // wake serve if it is waiting for a permit
+        permits.release();
+    }
+
+    /**
+     * Return the number of path requests answered
+     * @return the request count
+     */
+    public long requestCount(){
+        return requests.sum();
+    }
+
+    // serve the requests of one connection until the client quits or disconnects
+    private void handle(Socket s){
+        try(Socket socket = s;
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))){
+            String line;
+            while((line = in.readLine()) != null){
+                String request = line.trim();
+                if(request.isEmpty())
+                    continue;
+                if(request.equals("QUIT"))
+                    break;
+                out.println(request.equals("STATS") ? stats() : answer(request));
+                out.flush();
+            }
+        }catch(IOException e){
+            // the client went away, nothing left to answer
+        }
+    }
+
+    // answer one path request, timing it
+    private String answer(String request){
+        long start = System.nanoTime();
+        String[] tokens = request.split("\\s+");
+        if(tokens.length != 2)
+            return "ERROR expected: start destination";
+        Vertex a = new Vertex(tokens[0]);
+        Vertex b = new Vertex(tokens[1]);
+        Path p;
+        try{
+            p = graph.shortestPath(a, b, heuristic);
+        }catch(IllegalArgumentException e){
+            return "ERROR no such vertex";
+        }
+        long nanos = System.nanoTime() - start;
+        requests.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        long micros = nanos / 1000;
+        if(p == null)
+            return "NONE " + micros;
+        StringBuilder sb = new StringBuilder();
+        sb.append("OK ").append(p.cost).append(' ').append(micros);
+        for(Vertex v: p.vertices)
+            sb.append(' ').append(v);
+        return sb.toString();
+    }
+
+    // throughput and latency over every request answered so far
+    private String stats(){
+        long n = requests.sum();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return String.format("STATS requests=%d perSecond=%.1f meanMicros=%d maxMicros=%d",
+                n, n / seconds, n == 0 ? 0 : totalNanos.sum() / n / 1000, maxNanos.get() / 1000);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * The priority queues Dijkstra's algorithm can run on.
+ * The bucket queue and radix heap are monotone: they only accept keys no
+ * smaller than the last minimum removed, which Dijkstra's algorithm on
+ * nonnegative integer weights guarantees.
+ */
+public enum QueueType {
+    /** binary heap, O(log n) per operation for any weights */
+    BINARY_HEAP,
+    /** Dial's bucket queue, O(1) per operation plus O(max weight) scanning per search */
+    BUCKET,
+    /** radix heap, O(log max weight) amortized per removal */
+    RADIX,
+    /** pick by the largest edge weight of the graph */
+    AUTO;
+
+    // largest edge weight for which AUTO picks the bucket queue
+    static final int BUCKET_LIMIT = 1 << 12;
+
+    /**
+     * Resolve AUTO for a graph: small weights go to the bucket queue and
+     * larger ones to the radix heap. Other types resolve to themselves.
+     * @param maxWeight the largest edge weight of the graph
+     * @return the queue type to use
+     */
+    public QueueType resolve(int maxWeight){
+        if(this != AUTO)
+            return this;
+        return maxWeight <= BUCKET_LIMIT ? BUCKET : RADIX;
+    }
+
+    /**
+     * Create a queue of this type
+     * @param capacity the number of distinct ids
+     * @param maxWeight the largest edge weight of the graph to be searched
+     * @return an empty queue
+     */
+    public IndexedPriorityQueue create(int capacity, int maxWeight){
+        switch(resolve(maxWeight)){
+            case BUCKET:
+                return new BucketQueue(capacity, maxWeight);
+            case RADIX:
+                return new RadixHeap(capacity);
+            default:
+                return new IndexedMinHeap(capacity);
+        }
+    }
+
+    /**
+     * Return the largest edge weight of a graph
+     * @param g a graph
+     * @return the largest weight, or 0 if g has no edges
+     */
+    public static int maxWeight(IndexedGraph g){
+        int max = 0;
+        for(int v = 0; v < g.vertexCount(); v++){
+            int[] weights = g.weights(v);
+            for(int e = g.edgeStart(v); e < g.edgeEnd(v); e++)
+                max = Math.max(max, weights[e]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * Radix heap: a monotone priority queue for nonnegative int keys that never
+ * go below the last minimum removed. Bucket 0 holds keys equal to that
+ * minimum and bucket i holds keys whose highest bit differing from it is
+ * bit i-1. Removing the minimum from an empty bucket 0 redistributes the
+ * lowest nonempty bucket into smaller ones, and a key only ever moves down,
+ * so each costs O(log max key) amortized. Buckets are doubly linked lists
+ * threaded through int arrays so decreaseKey is O(1).
+ */
+public class RadixHeap implements IndexedPriorityQueue {
+    private static final int BUCKETS = 33;
+
+    // head[b] is the first id in bucket b, or -1
+    private final int[] head = new int[BUCKETS];
+    // links of the bucket lists and bucket of each id
+    private final int[] next;
+    private final int[] prev;
+    private final int[] bucketOf;
+    private final int[] keys;
+    private final boolean[] queued;
+    private int size;
+    // the last minimum removed; no queued key is smaller
+    private int last;
+
+    /**
+     * Creates an empty heap that can hold the ids 0 .. capacity-1
+     * @param capacity the number of distinct ids
+     */
+    public RadixHeap(int capacity){
+        Arrays.fill(head, -1);
+        next = new int[capacity];
+        prev = new int[capacity];
+        bucketOf = new int[capacity];
+        keys = new int[capacity];
+        queued = new boolean[capacity];
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean contains(int id){
+        return queued[id];
+    }
+
+    public int key(int id){
+        return keys[id];
+    }
+
+    public void insert(int id, int key){
+        if(queued[id])
+            throw new IllegalArgumentException("Id " + id + " is already in the heap");
+        if(key < last)
+            throw new IllegalArgumentException("Key " + key + " is below the last minimum " + last);
+        keys[id] = key;
+        queued[id] = true;
+        link(id, bucket(key));
+        size++;
+    }
+
+    public void decreaseKey(int id, int key){
+        if(key > keys[id])
+            throw new IllegalArgumentException("Key cannot increase");
+        if(key < last)
+            throw new IllegalArgumentException("Key " + key + " is below the last minimum " + last);
+        unlink(id);
+        keys[id] = key;
+        link(id, bucket(key));
+    }
+
+    public int minKey(){
+        settle();
+        return last;
+    }
+
+    public int pollMin(){
+        settle();
+        int id = head[0];
+        unlink(id);
+        queued[id] = false;
+        size--;
+        return id;
+    }
+
+    public void clear(){
+        for(int b = 0; b < BUCKETS; b++){
+            while(head[b] != -1){
+                int id = head[b];
+                unlink(id);
+                queued[id] = false;
+            }
+        }
+        size = 0;
+        last = 0;
+    }
+
+    // make bucket 0 hold the minimum, redistributing the lowest nonempty bucket if needed
+    private void settle(){
+        if(size == 0)
+            throw new IllegalStateException("Heap is empty");
+        if(head[0] != -1)
+            return;
+        int b = 1;
+        while(head[b] == -1)
+            b++;
+        int min = Integer.MAX_VALUE;
+        for(int id = head[b]; id != -1; id = next[id])
+            min = Math.min(min, keys[id]);
+        last = min;
+        // relative to the new minimum every id of bucket b lands in a lower bucket
+        int id = head[b];
+        head[b] = -1;
+        while(id != -1){
+            int following = next[id];
+            link(id, bucket(keys[id]));
+            id = following;
+        }
+    }
+
+    // bucket of a key relative to the last minimum
+    private int bucket(int key){
+        return key == last ? 0 : 32 - Integer.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void link(int id, int b){
+        bucketOf[id] = b;
+        prev[id] = -1;
+        next[id] = head[b];
+        if(head[b] != -1)
+            prev[head[b]] = id;
+        head[b] = id;
+    }
+
+    private void unlink(int id){
+        if(prev[id] != -1)
+            next[prev[id]] = next[id];
+        else
+            head[bucketOf[id]] = next[id];
+        if(next[id] != -1)
+            prev[next[id]] = prev[id];
+    }
+}
@@ -0,0 +1,328 @@
+import java.util.*;
+
+/**
+ * Reusable Dijkstra search over the int ids of an IndexedGraph.
+ * The dist and prev arrays are allocated once and reset lazily: a vertex
+ * whose stamp differs from the current generation has not been reached by
+ * the current search. After construction a query allocates nothing but the
+ * Path it returns.
+ * An engine is not thread-safe; give each thread its own.
+ */
+public class ShortestPathEngine {
+    private final IndexedGraph graph;
+    // best known distance and back pointer for each vertex reached in this generation
+    private final int[] dist;
+    private final int[] prev;
+    // stamp[v] == generation means dist[v] and prev[v] belong to the current search
+    private final int[] stamp;
+    private int generation;
+    // the queue searches run on, chosen by queue type
+    private final IndexedPriorityQueue queue;
+    private final QueueType queueType;
+    // the type asked for, which may be AUTO
+    private final QueueType requestedType;
+    // the largest edge weight the queue can take, bounded only for the bucket queue
+    private final int weightLimit;
+    // A* keys are not monotone, so A* always runs on a binary heap, allocated by the first A* search
+    private IndexedMinHeap heap;
+    // heuristic estimate of each vertex reached by an A* search, allocated by the first one
+    private int[] estimate;
+    // goal[v] == generation marks a target of searchAll that is not settled yet, allocated on first use
+    private int[] goal;
+
+    /**
+     * Creates an engine for the given graph that queues vertices in a binary heap
+     * @param graph the graph to search
+     */
+    public ShortestPathEngine(IndexedGraph graph){
+        this(graph, QueueType.BINARY_HEAP);
+    }
+
+    /**
+     * Creates an engine for the given graph
+     * @param graph the graph to search
+     * @param type the priority queue Dijkstra's algorithm runs on; AUTO picks
+     *   one by the largest edge weight of the graph
+     */
+    public ShortestPathEngine(IndexedGraph graph, QueueType type){
+        if(graph == null || type == null)
+            throw new IllegalArgumentException("Parameters can't be null ");
+        this.graph = graph;
+        int n = graph.vertexCount();
+        dist = new int[n];
+        prev = new int[n];
+        stamp = new int[n];
+        requestedType = type;
+        int maxWeight = type == QueueType.BINARY_HEAP ? 0 : QueueType.maxWeight(graph);
+        queueType = type.resolve(maxWeight);
+        queue = queueType.create(n, maxWeight);
+        weightLimit = queueType == QueueType.BUCKET ? maxWeight : Integer.MAX_VALUE;
+        if(queue instanceof IndexedMinHeap)
+            heap = (IndexedMinHeap)queue;
+    }
+
+    /**
+     * Return the graph this engine searches
+     * @return the graph
+     */
+    public IndexedGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Return the kind of queue Dijkstra's algorithm runs on, with AUTO resolved
+     * @return the queue type
+     */
+    public QueueType queueType(){
+        return queueType;
+    }
+
+    // the queue type this engine was created with, before resolving AUTO
+    QueueType requestedType(){
+        return requestedType;
+    }
+
+    // whether the queue can still search a graph with an edge of weight w,
+    // which a bucket queue sized for a smaller largest weight cannot
+    boolean accepts(int w){
+        return w <= weightLimit;
+    }
+
+    /**
+     * Returns the shortest path from a to b in the graph, or null if there is
+     * no such path.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a Path from a (first) to b (last) and its cost, or null if b is not reachable from a
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b){
+        return shortestPath(a, b, null);
+    }
+
+    /**
+     * Returns the shortest path from a to b in the graph found by A* search,
+     * or null if there is no such path.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param h an admissible heuristic, or null for plain Dijkstra
+     * @return a Path from a (first) to b (last) and its cost, or null if b is not reachable from a
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b, Heuristic h){
+        int s = graph.indexOf(a);
+        int t = graph.indexOf(b);
+        if(s < 0 || t < 0)
+            throw new IllegalArgumentException("Vertex does not exist in the graph");
+        search(s, t, h);
+        return path(t);
+    }
+
+    /**
+     * Run Dijkstra's algorithm from source until target is settled, or until
+     * every reachable vertex is settled if target is -1.
+     * @param source the id to search from
+     * @param target the id to stop at, or -1 to search the whole graph
+     * @return the distance from source to target, or -1 if target was not reached
+     */
+    public int search(int source, int target){
+        start(source);
+        while(!queue.isEmpty()){
+            int u = queue.pollMin();
+            // break out of the loop if we found the destination
+            if(u == target)
+                break;
+            relax(u);
+        }
+        queue.clear();
+        return target >= 0 ? distance(target) : -1;
+    }
+
+    /**
+     * Run Dijkstra's algorithm from source until every id in targets is
+     * settled, or until every reachable vertex is settled if some target
+     * cannot be reached. Afterwards distance and parent are final for every target.
+     * @param source the id to search from
+     * @param targets the ids to stop at, repeats allowed
+     */
+    public void searchAll(int source, int[] targets){
+        if(goal == null)
+            goal = new int[dist.length];
+        start(source);
+        int remaining = 0;
+        for(int t: targets){
+            if(goal[t] != generation){
+                goal[t] = generation;
+                remaining++;
+            }
+        }
+        while(!queue.isEmpty() && remaining > 0){
+            int u = queue.pollMin();
+            if(goal[u] == generation){
+                // clear the mark so a repeat can't count twice
+                goal[u] = 0;
+                remaining--;
+            }
+            relax(u);
+        }
+        queue.clear();
+    }
+
+    /**
+     * Run A* search from source to target: Dijkstra's algorithm with every
+     * vertex queued by its distance plus the heuristic's estimate of the cost
+     * left to target. If the heuristic is admissible the distance found is the
+     * same as search(source, target) finds. A vertex whose distance improves
+     * after it was settled is queued again, so heuristics that are admissible
+     * but not consistent still give optimal results.
+     * @param source the id to search from
+     * @param target the id to search to
+     * @param h the heuristic, or null for plain Dijkstra
+     * @return the distance from source to target, or -1 if target was not reached
+     */
+    public int search(int source, int target, Heuristic h){
+        if(h == null)
+            return search(source, target);
+        if(estimate == null)
+            estimate = new int[dist.length];
+        if(heap == null)
+            heap = new IndexedMinHeap(dist.length);
+        int hs = Math.max(0, h.estimate(graph, source, target));
+        newGeneration();
+        heap.clear();
+        reach(source, 0, -1);
+        heap.insert(source, hs);
+        estimate[source] = hs;
+        while(!heap.isEmpty()){
+            int u = heap.pollMin();
+            if(u == target)
+                break;
+            int du = dist[u];
+            int[] targets = graph.targets(u);
+            int[] weights = graph.weights(u);
+            for(int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++){
+                int v = targets[e];
+                int alt = du + weights[e];
+                if(stamp[v] != generation){
+                    reach(v, alt, u);
+                    estimate[v] = Math.max(0, h.estimate(graph, v, target));
+                    heap.insert(v, priority(alt, estimate[v]));
+                }else if(alt < dist[v]){
+                    dist[v] = alt;
+                    prev[v] = u;
+                    if(heap.contains(v))
+                        heap.decreaseKey(v, priority(alt, estimate[v]));
+                    else // reopen a settled vertex
+                        heap.insert(v, priority(alt, estimate[v]));
+                }
+            }
+        }
+        heap.clear();
+        return distance(target);
+    }
+
+    // queue priority of a vertex at distance d with estimate h, saturating instead of overflowing
+    private static int priority(int d, int h){
+        long key = (long)d + h;
+        return key > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)key;
+    }
+
+    // begin a new generation with only the source reached and queued
+    void start(int source){
+        newGeneration();
+        queue.clear();
+        reach(source, 0, -1);
+        queue.insert(source, 0);
+    }
+
+    // forget every vertex reached so far
+    private void newGeneration(){
+        generation++;
+        if(generation == 0){
+            // the stamps wrapped around, so old stamps could look current
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    // relax every out-edge of the settled vertex u
+    void relax(int u){
+        int du = dist[u];
+        int[] targets = graph.targets(u);
+        int[] weights = graph.weights(u);
+        for(int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++)
+            improve(targets[e], du + weights[e], u);
+    }
+
+    // offer v a path of length alt through u, returns true if it was shorter than what we had
+    boolean improve(int v, int alt, int u){
+        if(stamp[v] != generation){
+            reach(v, alt, u);
+            queue.insert(v, alt);
+            return true;
+        }else if(alt < dist[v]){
+            // settled vertices never improve, so v must still be queued
+            dist[v] = alt;
+            prev[v] = u;
+            queue.decreaseKey(v, alt);
+            return true;
+        }
+        return false;
+    }
+
+    // record the first distance and back pointer found for v in this generation
+    private void reach(int v, int d, int p){
+        stamp[v] = generation;
+        dist[v] = d;
+        prev[v] = p;
+    }
+
+    IndexedPriorityQueue queue(){
+        return queue;
+    }
+
+    /**
+     * Test whether the last search reached a vertex
+     * @param v a vertex id
+     * @return true if v was reached
+     */
+    public boolean reached(int v){
+        return stamp[v] == generation;
+    }
+
+    /**
+     * Return the distance to v found by the last search
+     * @param v a vertex id
+     * @return the distance to v, or -1 if v was not reached
+     */
+    public int distance(int v){
+        return reached(v) ? dist[v] : -1;
+    }
+
+    /**
+     * Return the predecessor of v on the last search's shortest path tree
+     * @param v a vertex id
+     * @return the id before v, or -1 if v is the source or was not reached
+     */
+    public int parent(int v){
+        return reached(v) ? prev[v] : -1;
+    }
+
+    /**
+     * Build the path found by the last search from its source to target
+     * @param target a vertex id
+     * @return the Path to target, or null if target was not reached
+     */
+    public Path path(int target){
+        if(!reached(target))
+            return null;
+        // count the hops first so the list is allocated at its final size
+        int hops = 1;
+        for(int v = prev[target]; v != -1; v = prev[v])
+            hops++;
+        Vertex[] path = new Vertex[hops];
+        for(int v = target; v != -1; v = prev[v])
+            path[--hops] = graph.vertexAt(v);
+        return new Path(Arrays.asList(path), dist[target]);
+    }
+}
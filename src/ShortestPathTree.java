@@ -0,0 +1,131 @@
+import java.util.*;
+
+/**
+ * The shortest paths from one source to every vertex of a graph, kept as
+ * a distance and a parent per vertex id. Any path is read off by following
+ * parents back to the source, in time proportional to its length.
+ * Immutable once built, so it can be shared between threads.
+ */
+public class ShortestPathTree {
+    private final IndexedGraph graph;
+    private final int source;
+    // dist[v] is the distance from the source to v, or -1 if v is unreachable
+    private final int[] dist;
+    // parent[v] is the vertex before v on its shortest path, or -1 for the source and unreachable vertices
+    private final int[] parent;
+
+    /**
+     * Creates a tree from distance and parent arrays indexed by vertex id
+     * @param graph the graph the ids belong to
+     * @param source the id of the source
+     * @param dist distance of each vertex from the source, -1 if unreachable
+     * @param parent vertex before each vertex on its shortest path, -1 if none
+     */
+    ShortestPathTree(IndexedGraph graph, int source, int[] dist, int[] parent){
+        this.graph = graph;
+        this.source = source;
+        this.dist = dist;
+        this.parent = parent;
+    }
+
+    /**
+     * Copy the tree grown by the last whole-graph search of an engine
+     * @param engine an engine that just ran search(source, -1)
+     * @param source the id searched from
+     * @return the tree
+     */
+    static ShortestPathTree of(ShortestPathEngine engine, int source){
+        int n = engine.graph().vertexCount();
+        int[] dist = new int[n];
+        int[] parent = new int[n];
+        for(int v = 0; v < n; v++){
+            dist[v] = engine.distance(v);
+            parent[v] = engine.parent(v);
+        }
+        return new ShortestPathTree(engine.graph(), source, dist, parent);
+    }
+
+    /**
+     * Return the source of this tree
+     * @return the source vertex
+     */
+    public Vertex source(){
+        return graph.vertexAt(source);
+    }
+
+    /**
+     * Return the cost of the shortest path from the source to v
+     * @param v a vertex of the graph
+     * @return the cost, or -1 if v is not reachable from the source
+     * @throws IllegalArgumentException if v does not exist.
+     */
+    public int distanceTo(Vertex v){
+        return dist[id(v)];
+    }
+
+    /**
+     * Return the vertex before v on the shortest path from the source
+     * @param v a vertex of the graph
+     * @return the parent of v, or null if v is the source or not reachable
+     * @throws IllegalArgumentException if v does not exist.
+     */
+    public Vertex parentOf(Vertex v){
+        int p = parent[id(v)];
+        return p < 0 ? null : graph.vertexAt(p);
+    }
+
+    /**
+     * Returns the shortest path from the source to b, or null if there is no such path.
+     * @param b the destination vertex
+     * @return a Path where the vertices indicate the path from the source to b in order
+     *   and contains the source (first) and b (last) and the cost is the cost of
+     *   the path. Returns null if b is not reachable from the source.
+     * @throws IllegalArgumentException if b does not exist.
+     */
+    public Path pathTo(Vertex b){
+        return pathTo(id(b));
+    }
+
+    /**
+     * Returns the shortest path from the source to a vertex id, or null if there is no such path.
+     * @param target a vertex id
+     * @return the Path to target, or null if target is not reachable from the source
+     */
+    public Path pathTo(int target){
+        if(dist[target] < 0)
+            return null;
+        int hops = 1;
+        for(int v = parent[target]; v != -1; v = parent[v])
+            hops++;
+        Vertex[] path = new Vertex[hops];
+        for(int v = target; v != -1; v = parent[v])
+            path[--hops] = graph.vertexAt(v);
+        return new Path(Arrays.asList(path), dist[target]);
+    }
+
+    /**
+     * Return the distance from the source to a vertex id
+     * @param v a vertex id
+     * @return the distance, or -1 if v is unreachable
+     */
+    public int distance(int v){
+        return dist[v];
+    }
+
+    /**
+     * Return the parent of a vertex id
+     * @param v a vertex id
+     * @return the id before v on its shortest path, or -1 if none
+     */
+    public int parent(int v){
+        return parent[v];
+    }
+
+    // helper to translate a vertex into its id
+    private int id(Vertex v){
+        int id = graph.indexOf(v);
+        if(id < 0)
+            throw new IllegalArgumentException("Vertex " + v + " does not exist in the graph");
+        return id;
+    }
+}
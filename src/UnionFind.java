@@ -0,0 +1,88 @@
+/**
+ * Disjoint sets over the int ids 0 .. size-1, starting with every id in a
+ * set of its own. Sets are named by a root id: two ids are in the same set
+ * exactly when find returns the same root for both, as long as no union runs
+ * in between.
+ */
+public interface UnionFind {
+
+    /**
+     * Return the number of ids
+     * @return the number of ids
+     */
+    public int size();
+
+    /**
+     * Return the number of disjoint sets the ids currently form
+     * @return the number of sets
+     */
+    public int count();
+
+    /**
+     * Return the root of the set holding an id
+     * @param v an id
+     * @return the root id of its set
+     * @throws IndexOutOfBoundsException if v is not an id
+     */
+    public int find(int v);
+
+    /**
+     * Merge the sets holding two ids
+     * @param a an id
+     * @param b an id
+     * @return true if the sets were merged, false if a and b were in one set already
+     * @throws IndexOutOfBoundsException if a or b is not an id
+     */
+    public boolean union(int a, int b);
+
+    /**
+     * Test whether two ids are in the same set
+     * @param a an id
+     * @param b an id
+     * @return true if a and b are in one set
+     */
+    public default boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    /**
+     * Merge the sets of a[i] and b[i] for every i
+     * @param a ids
+     * @param b ids, as many as in a
+     * @return the number of pairs that merged two sets
+     * @throws IllegalArgumentException if a and b differ in length
+     */
+    public default int unionAll(int[] a, int[] b) {
+        if(a.length != b.length)
+            throw new IllegalArgumentException("Id arrays differ in length");
+        int merged = 0;
+        for(int i = 0; i < a.length; i++)
+            if(union(a[i], b[i]))
+                merged++;
+        return merged;
+    }
+
+    /**
+     * Return the roots of the sets holding the given ids
+     * @param ids ids
+     * @return the root of ids[i] at index i
+     */
+    public default int[] findAll(int[] ids) {
+        int[] roots = new int[ids.length];
+        for(int i = 0; i < ids.length; i++)
+            roots[i] = find(ids[i]);
+        return roots;
+    }
+
+    /**
+     * Return the root of the set holding every id, which labels each id
+     * with its component
+     * @return the root of id v at index v
+     */
+    public default int[] components() {
+        int[] roots = new int[size()];
+        for(int v = 0; v < roots.length; v++)
+            roots[v] = find(v);
+        return roots;
+    }
+}
@@ -1,8 +1,15 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Checksum;
+
 /**
  * Representation of a graph vertex
  */
 public class Vertex {
-	private final String label;   // label attached to this vertex
+	private final String label;   // label attached to this vertex, null when the label lives in a table
+	private final VertexTable table;   // table holding the label bytes of an interned vertex
+	private final int id;   // id of this vertex in its table
+	private final int hash;   // hash of the label, computed once
 
 	/**
 	 * Construct a new vertex
@@ -12,14 +19,55 @@ public class Vertex {
 		if(label == null)
 			throw new IllegalArgumentException("null");
 		this.label = label;
+		this.table = null;
+		this.id = -1;
+		this.hash = hashOf(label);
+	}
+
+	/**
+	 * Construct the canonical vertex of a label interned in a table
+	 * @param table the table holding the label
+	 * @param id the id of the label in the table
+	 * @param hash the hash of the label, as hashOf computes it
+	 */
+	Vertex(VertexTable table, int id, int hash) {
+		this.label = null;
+		this.table = table;
+		this.id = id;
+		this.hash = hash;
 	}
 
 	/**
-	 * Get a vertex label
+	 * Get a vertex label. The label of an interned vertex is decoded from its
+	 * table on every call, so code that only needs the bytes, such as file
+	 * writers and checksums, uses putLabel and updateLabel instead.
 	 * @return the label attached to this vertex
 	 */
 	public String getLabel() {
-		return label;
+		return label != null ? label : table.label(id);
+	}
+
+	// the length of the label in UTF-8 bytes
+	int labelLength() {
+		return table != null ? table.labelLength(id) : label.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	// copy the label as UTF-8 bytes into out, straight from the table for an interned vertex
+	void putLabel(ByteBuffer out) {
+		if(table != null)
+			table.putLabel(id, out);
+		else
+			out.put(label.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// feed the label as UTF-8 bytes to a checksum, straight from the table for an interned vertex
+	void updateLabel(Checksum sum) {
+		if(table != null) {
+			table.updateLabel(id, sum);
+		} else {
+			byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+			sum.update(bytes, 0, bytes.length);
+		}
 	}
 	
 	/**
@@ -27,18 +75,23 @@ public class Vertex {
 	 * @return the label attached to this vertex
 	 */
 	public String toString() {
-		return label;
+		return getLabel();
 	}
 
-	//auto-generated: hashes on label
-	public int hashCode() {
+	// the hash of a vertex with the given label
+	static int hashOf(String label) {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((label == null) ? 0 : label.hashCode());
+		result = prime * result + label.hashCode();
 		return result;
 	}
 
-	//auto-generated: compares labels
+	//hashes on label, cached at construction
+	public int hashCode() {
+		return hash;
+	}
+
+	//compares labels, canonical vertices of one table are equal only to themselves
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
@@ -47,11 +100,15 @@ public class Vertex {
 		if (getClass() != obj.getClass())
 			return false;
 		final Vertex other = (Vertex) obj;
-		if (label == null) {
-                    return other.label == null;
-		} else {
-		    return label.equals(other.label);
-		}
+		if (hash != other.hash)
+			return false;
+		if (table != null && table == other.table)
+			return false;
+		if (label != null && other.label != null)
+			return label.equals(other.label);
+		if (label != null)
+			return other.table.labelEquals(other.id, label);
+		return table.labelEquals(id, other.getLabel());
 	}
 
 
@@ -0,0 +1,254 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+/**
+ * Symbol table that interns vertex labels. Every distinct label is stored
+ * once as UTF-8 bytes in a shared arena and gets a dense int id and one
+ * canonical Vertex, so a graph read through a table holds a single Vertex per
+ * label instead of one per occurrence in the files, and map lookups with
+ * canonical vertices succeed on the identity check in Vertex.equals.
+ * Labels can be looked up straight from bytes, which lets loaders match
+ * tokens without decoding them into Strings.
+ * Adding labels is not thread-safe; once filled, a table can be read by
+ * any number of threads.
+ */
+public class VertexTable {
+    // label of id i is arena[offsets[i] .. offsets[i+1])
+    private byte[] arena;
+    private int arenaSize;
+    private int[] offsets;
+    private Vertex[] vertices;
+    private int size;
+    // slots hold id + 1, or 0 when empty
+    private int[] slots;
+
+    /**
+     * Creates an empty table
+     */
+    public VertexTable(){
+        arena = new byte[1 << 10];
+        offsets = new int[1 << 4];
+        vertices = new Vertex[1 << 4];
+        slots = new int[1 << 5];
+    }
+
+    /**
+     * Creates a table over labels already laid out back to back, ids in order
+     * @param arena the label bytes, kept by the table
+     * @param lengths the byte length of each label
+     * @throws IllegalArgumentException if a label repeats or the lengths do not fit the arena
+     */
+    VertexTable(byte[] arena, int[] lengths){
+        int n = lengths.length;
+        this.arena = arena;
+        offsets = new int[n + 1];
+        vertices = new Vertex[Math.max(1, n)];
+        slots = new int[Integer.highestOneBit(Math.max(1, n)) * 4];
+        ByteBuffer bytes = ByteBuffer.wrap(arena);
+        for(int i = 0; i < n; i++){
+            if(lengths[i] < 0 || arenaSize + lengths[i] > arena.length)
+                throw new IllegalArgumentException("Label lengths do not fit the arena");
+            int from = arenaSize;
+            int to = from + lengths[i];
+            int h = hash(bytes, from, to);
+            int slot = findSlot(bytes, from, to, h);
+            if(slots[slot] != 0)
+                throw new IllegalArgumentException("Repeated vertex label");
+            arenaSize = to;
+            offsets[i + 1] = to;
+            vertices[i] = new Vertex(this, i, h);
+            slots[slot] = i + 1;
+            size++;
+        }
+    }
+
+    /**
+     * Return the canonical vertex for a label, adding the label if it is new
+     * @param label a vertex label
+     * @return the one vertex this table keeps for label
+     */
+    public Vertex intern(String label){
+        if(label == null)
+            throw new IllegalArgumentException("null");
+        byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+        int id = add(ByteBuffer.wrap(bytes), 0, bytes.length);
+        return vertices[id];
+    }
+
+    /**
+     * Return the canonical vertex for a label
+     * @param label a vertex label
+     * @return the vertex, or null if the label is not in the table
+     */
+    public Vertex get(String label){
+        int id = idOf(label);
+        return id < 0 ? null : vertices[id];
+    }
+
+    /**
+     * Return the id of a label
+     * @param label a vertex label
+     * @return the id, or -1 if the label is not in the table
+     */
+    public int idOf(String label){
+        byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+        return find(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Return the canonical vertex with an id
+     * @param id a vertex id
+     * @return the vertex
+     */
+    public Vertex vertex(int id){
+        if(id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("Id: " + id);
+        return vertices[id];
+    }
+
+    /**
+     * Return the number of labels in the table
+     * @return the number of labels
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Return the canonical vertices in id order
+     * @return a new array of the vertices
+     */
+    public Vertex[] toArray(){
+        return Arrays.copyOf(vertices, size);
+    }
+
+    /**
+     * Return the id of the label held in bytes[from .. to), adding it if it is new
+     * @param bytes a buffer holding UTF-8 label bytes
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @return the id of the label
+     */
+    int add(ByteBuffer bytes, int from, int to){
+        int h = hash(bytes, from, to);
+        int slot = findSlot(bytes, from, to, h);
+        if(slots[slot] != 0)
+            return slots[slot] - 1;
+        int length = to - from;
+        if(arenaSize + length > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(arenaSize + length, arena.length * 2));
+        for(int i = 0; i < length; i++)
+            arena[arenaSize + i] = bytes.get(from + i);
+        arenaSize += length;
+        int id = size++;
+        if(id == vertices.length)
+            vertices = Arrays.copyOf(vertices, id * 2);
+        if(id + 1 == offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[id + 1] = arenaSize;
+        vertices[id] = new Vertex(this, id, h);
+        slots[slot] = id + 1;
+        if(size * 2 > slots.length)
+            grow();
+        return id;
+    }
+
+    /**
+     * Return the id of the label held in bytes[from .. to)
+     * @param bytes a buffer holding UTF-8 label bytes
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @return the id, or -1 if the label is not in the table
+     */
+    int find(ByteBuffer bytes, int from, int to){
+        return slots[findSlot(bytes, from, to, hash(bytes, from, to))] - 1;
+    }
+
+    // decode the label of an id
+    String label(int id){
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    // the length in bytes of the label of an id
+    int labelLength(int id){
+        return offsets[id + 1] - offsets[id];
+    }
+
+    // copy the label bytes of an id into out, without decoding them
+    void putLabel(int id, ByteBuffer out){
+        out.put(arena, offsets[id], labelLength(id));
+    }
+
+    // feed the label bytes of an id to a checksum, without decoding them
+    void updateLabel(int id, Checksum sum){
+        sum.update(arena, offsets[id], labelLength(id));
+    }
+
+    // test whether the label of an id is s, without decoding it when it is ASCII
+    boolean labelEquals(int id, String s){
+        int from = offsets[id];
+        int length = offsets[id + 1] - from;
+        for(int i = 0; i < length; i++){
+            if(arena[from + i] < 0)
+                return label(id).equals(s);
+            if(i >= s.length() || arena[from + i] != s.charAt(i))
+                return false;
+        }
+        return length == s.length();
+    }
+
+    // the hash Vertex uses for the label in bytes[from .. to)
+    // ASCII bytes are hashed as the chars they decode to, anything else is decoded first
+    private static int hash(ByteBuffer bytes, int from, int to){
+        int h = 0;
+        for(int i = from; i < to; i++){
+            byte b = bytes.get(i);
+            if(b < 0){
+                byte[] copy = new byte[to - from];
+                for(int j = 0; j < copy.length; j++)
+                    copy[j] = bytes.get(from + j);
+                return Vertex.hashOf(new String(copy, StandardCharsets.UTF_8));
+            }
+            h = 31 * h + b;
+        }
+        return 31 + h;
+    }
+
+    // the slot holding the label in bytes[from .. to), or the empty slot where it belongs
+    private int findSlot(ByteBuffer bytes, int from, int to, int h){
+        int mask = slots.length - 1;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while(slots[slot] != 0 && !matches(slots[slot] - 1, h, bytes, from, to))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private boolean matches(int id, int h, ByteBuffer bytes, int from, int to){
+        if(vertices[id].hashCode() != h)
+            return false;
+        int start = offsets[id];
+        int length = offsets[id + 1] - start;
+        if(length != to - from)
+            return false;
+        for(int i = 0; i < length; i++)
+            if(arena[start + i] != bytes.get(from + i))
+                return false;
+        return true;
+    }
+
+    // double the slot array and reinsert every id
+    private void grow(){
+        int[] bigger = new int[slots.length * 2];
+        int mask = bigger.length - 1;
+        for(int id = 0; id < size; id++){
+            int h = vertices[id].hashCode();
+            int slot = (h ^ (h >>> 16)) & mask;
+            while(bigger[slot] != 0)
+                slot = (slot + 1) & mask;
+            bigger[slot] = id + 1;
+        }
+        slots = bigger;
+    }
+}
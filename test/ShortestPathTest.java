@@ -4,9 +4,18 @@ import org.junit.Test;
 import org.junit.FixMethodOrder;
 import org.junit.runners.MethodSorters;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.*;
+import java.util.function.BiFunction;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class ShortestPathTest {
@@ -340,6 +349,652 @@ public class ShortestPathTest {
 		assertNull(result);
 	}
 
+	@Test
+	public void D7_testCompactGraphMatchesMyGraph() throws IOException {
+		CompactGraph loaded = GraphLoader.readCompactGraph(TEST_VERTICES, TEST_EDGES);
+		CompactGraph built = new CompactGraph(g.vertices(), g.edges());
+		for (CompactGraph c : Arrays.asList(loaded, built)) {
+			assertEquals(g.vertices().size(), c.vertices().size());
+			assertEquals(new HashSet<Vertex>(g.vertices()), new HashSet<Vertex>(c.vertices()));
+			assertEquals(g.edges().size(), c.edges().size());
+			assertEquals(new HashSet<Edge>(g.edges()), new HashSet<Edge>(c.edges()));
+			for (Edge e : g.edges())
+				assertTrue(c.edges().contains(e));
+			for (Vertex a : g.vertices()) {
+				assertTrue(c.vertices().contains(a));
+				assertEquals(new HashSet<Vertex>(g.adjacentVertices(a)), new HashSet<Vertex>(c.adjacentVertices(a)));
+				for (Vertex b : g.vertices())
+					assertEquals(g.edgeCost(a, b), c.edgeCost(a, b));
+			}
+			assertFalse(c.vertices().contains(new Vertex("YUP")));
+			try {
+				c.edgeCost(new Vertex("YUP"), new Vertex("SEA"));
+				fail("cost of an edge from a missing vertex");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void E1_testBidirectionalMatchesDijkstra() {
+		assertMatchesDijkstra(g, g::bidirectionalShortestPath);
+	}
+
+	@Test
+	public void E2_testAStarMatchesDijkstra() {
+		// the exact remaining cost is the best admissible heuristic there is
+		Map<String, Integer> costs = new HashMap<String, Integer>();
+		for (Vertex a : g.vertices()) {
+			for (Vertex b : g.vertices()) {
+				Path p = g.shortestPath(a, b);
+				costs.put(a + " " + b, p == null ? 0 : p.cost);
+			}
+		}
+		Heuristic exact = (v, goal) -> costs.get(v + " " + goal);
+		assertMatchesDijkstra(g, (a, b) -> g.shortestPath(a, b, exact));
+	}
+
+	@Test
+	public void E3_testLandmarksMatchDijkstra() {
+		MyGraph alt = readGraph(TEST_VERTICES, TEST_EDGES);
+		alt.preprocessLandmarks(4);
+		assertMatchesDijkstra(g, alt::shortestPath);
+	}
+
+	@Test
+	public void E4_testContractionHierarchyMatchesDijkstra() {
+		ContractionHierarchy ch = ContractionHierarchy.build(g);
+		assertMatchesDijkstra(g, ch::shortestPath);
+	}
+
+	@Test
+	public void E5_testShortestPathTreeMatchesDijkstra() {
+		assertMatchesDijkstra(g, treeQuery(g));
+	}
+
+	@Test
+	public void E6_testDistanceMatrixMatchesSingleQueries() {
+		List<Vertex> sources = new ArrayList<Vertex>(g.vertices());
+		List<Vertex> targets = new ArrayList<Vertex>(g.vertices());
+		Collections.reverse(targets);
+		int[] matrix = g.distanceMatrix(sources, targets);
+		assertEquals(sources.size() * targets.size(), matrix.length);
+		for (int i = 0; i < sources.size(); i++) {
+			for (int j = 0; j < targets.size(); j++) {
+				Path expected = g.shortestPath(sources.get(i), targets.get(j));
+				assertEquals(expected == null ? -1 : expected.cost, matrix[i * targets.size() + j]);
+			}
+		}
+		// 50000 x 50000 entries do not fit an int indexed array
+		List<Vertex> many = Collections.nCopies(50000, new Vertex("SEA"));
+		try {
+			g.distanceMatrix(many, many);
+			fail("built a matrix too large for an array");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void E7_testDeltaSteppingMatchesDijkstra() {
+		// delta 1 makes every edge above weight 1 heavy and runs many buckets,
+		// a huge delta puts everything in one bucket of light edges
+		MyGraph random = randomGraph(9, 3000, 15000, 1000);
+		for (MyGraph graph : Arrays.asList(g, random)) {
+			List<Vertex> sources = new ArrayList<Vertex>(graph.vertices()).subList(0, 5);
+			for (int delta : new int[] { 1, 1 << 20 }) {
+				DeltaStepping ds = new DeltaStepping(graph, delta);
+				for (Vertex a : sources) {
+					ShortestPathTree expected = graph.shortestPathTree(a);
+					ShortestPathTree result = ds.shortestPathTree(a);
+					for (Vertex b : graph.vertices())
+						assertEquals(expected.distanceTo(b), result.distanceTo(b));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void E8_testEveryQueueTypeMatchesBinaryHeap() {
+		// AUTO picks the bucket queue up to BUCKET_LIMIT and the radix heap above it
+		MyGraph light = randomGraph(10, 1000, 5000, 100);
+		MyGraph heavy = randomGraph(11, 1000, 5000, 4 * QueueType.BUCKET_LIMIT);
+		assertEquals(QueueType.BUCKET, new ShortestPathEngine(light.index(), QueueType.AUTO).queueType());
+		assertEquals(QueueType.RADIX, new ShortestPathEngine(heavy.index(), QueueType.AUTO).queueType());
+		for (MyGraph graph : Arrays.asList(g, light, heavy)) {
+			List<Vertex> sources = new ArrayList<Vertex>(graph.vertices()).subList(0, 5);
+			MyGraph heap = new MyGraph(graph.vertices(), graph.edges());
+			heap.setQueueType(QueueType.BINARY_HEAP);
+			// every queue type is checked against the same paths, so search each pair once
+			heap.setPathCache(new PathCache(sources.size() * graph.vertices().size(), Long.MAX_VALUE, 0));
+			for (QueueType type : QueueType.values()) {
+				graph.setQueueType(type);
+				assertMatchesDijkstra(heap, sources, graph::shortestPath);
+				assertMatchesDijkstra(heap, sources, graph::bidirectionalShortestPath);
+			}
+		}
+	}
+
+	@Test
+	public void E9_testEveryAlgorithmOnZeroWeightsTiesAndUnreachable() {
+		MyGraph m = edgeCaseGraph();
+		Vertex s = new Vertex("S");
+		Vertex b = new Vertex("B");
+		Vertex c = new Vertex("C");
+		Vertex t = new Vertex("T");
+		Vertex u = new Vertex("U");
+		Vertex z = new Vertex("Z");
+		assertEquals(0, m.shortestPath(s, b).cost);
+		assertEquals(2, m.shortestPath(s, c).cost);
+		assertEquals(5, m.shortestPath(s, t).cost);
+		assertNull(m.shortestPath(s, u));
+		assertNull(m.shortestPath(z, s));
+		assertEquals(Collections.singletonList(z), m.shortestPath(z, z).vertices);
+
+		assertMatchesDijkstra(m, m::shortestPath);
+		assertMatchesDijkstra(m, m::bidirectionalShortestPath);
+		assertMatchesDijkstra(m, (x, y) -> m.shortestPath(x, y, (v, goal) -> 0));
+		assertMatchesDijkstra(m, ContractionHierarchy.build(m)::shortestPath);
+		assertMatchesDijkstra(m, treeQuery(m));
+		assertMatchesDijkstra(m, batchQuery(m));
+		assertMatchesDijkstra(m, new ConcurrentGraph(m.vertices(), m.edges()).snapshot()::shortestPath);
+		MyGraph alt = edgeCaseGraph();
+		alt.preprocessLandmarks(3);
+		assertMatchesDijkstra(m, alt::shortestPath);
+		for (QueueType type : QueueType.values()) {
+			MyGraph q = edgeCaseGraph();
+			q.setQueueType(type);
+			assertMatchesDijkstra(m, q::shortestPath);
+			assertMatchesDijkstra(m, q::bidirectionalShortestPath);
+		}
+		for (int delta : new int[] { 1, 1 << 20 }) {
+			DeltaStepping ds = new DeltaStepping(m, delta);
+			assertMatchesDijkstra(m, (x, y) -> ds.shortestPathTree(x).pathTo(y));
+		}
+		List<Vertex> all = new ArrayList<Vertex>(m.vertices());
+		int[] matrix = m.distanceMatrix(all, all);
+		for (int i = 0; i < all.size(); i++) {
+			for (int j = 0; j < all.size(); j++) {
+				Path expected = m.shortestPath(all.get(i), all.get(j));
+				assertEquals(expected == null ? -1 : expected.cost, matrix[i * all.size() + j]);
+			}
+		}
+
+		// a repaired tree has to follow an edge dropping to zero and a tie going away
+		DynamicShortestPaths tree = m.registerSource(s);
+		m.updateWeight(c, t, 0);
+		assertEquals(2, m.shortestPath(s, t).cost);
+		assertMatchesDijkstra(m, Collections.singleton(s), (x, y) -> tree.pathTo(y));
+		m.removeEdge(s, c);
+		assertMatchesDijkstra(m, Collections.singleton(s), (x, y) -> tree.pathTo(y));
+	}
+
+	@Test
+	public void F1_testLoaderMatchesScanner() throws Exception {
+		MyGraph loaded = GraphLoader.readMyGraph(TEST_VERTICES, TEST_EDGES);
+		assertEquals(new HashSet<Vertex>(g.vertices()), new HashSet<Vertex>(loaded.vertices()));
+		assertEquals(new HashSet<Edge>(g.edges()), new HashSet<Edge>(loaded.edges()));
+	}
+
+	@Test
+	public void F1b_testChunkedLoaderMatchesScanner() throws Exception {
+		for (int chunk : new int[] { 1, 2, 5, 64 }) {
+			MyGraph loaded = GraphLoader.readMyGraph(TEST_VERTICES, TEST_EDGES, chunk);
+			assertEquals(new HashSet<Edge>(g.edges()), new HashSet<Edge>(loaded.edges()));
+		}
+		// two bad edges after every good one, the earlier of which must be reported
+		File f = File.createTempFile("edges", ".txt");
+		try {
+			int lines = 0;
+			try (PrintWriter out = new PrintWriter(f)) {
+				for (Edge e : g.edges()) {
+					out.println(e.getSource() + " " + e.getDestination() + " " + e.getWeight());
+					lines++;
+				}
+				out.println("SEA NOPE 1");
+				out.println("NOPE2 SFO 1");
+			}
+			for (int chunk : new int[] { 8, GraphLoader.CHUNK_BYTES }) {
+				try {
+					GraphLoader.readMyGraph(TEST_VERTICES, f.getPath(), chunk);
+					fail("loaded an edge to a missing vertex");
+				} catch (NoSuchElementException e) {
+					assertTrue(e.getMessage(), e.getMessage().contains("NOPE is not"));
+					assertTrue(e.getMessage(), e.getMessage().endsWith("line " + (lines + 1) + ")"));
+				}
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void F1c_testInternedVerticesMatchPlainVertices() throws Exception {
+		VertexTable table = new VertexTable();
+		VertexTable other = new VertexTable();
+		for (String label : new String[] { "SEA", "Z\u00fcrich", "" }) {
+			Vertex interned = table.intern(label);
+			assertSame(interned, table.intern(label));
+			assertSame(interned, table.get(label));
+			assertSame(interned, table.vertex(table.idOf(label)));
+			Vertex plain = new Vertex(label);
+			Vertex copy = other.intern(label);
+			for (Vertex v : Arrays.asList(plain, copy)) {
+				assertEquals(interned, v);
+				assertEquals(v, interned);
+				assertEquals(interned.hashCode(), v.hashCode());
+			}
+			assertEquals(label, interned.getLabel());
+			Map<Vertex, String> map = new HashMap<Vertex, String>();
+			map.put(plain, label);
+			assertEquals(label, map.get(interned));
+			assertEquals(label, map.get(copy));
+		}
+		assertEquals(3, table.size());
+		assertNull(table.get("SFO"));
+		assertFalse(table.intern("SEA").equals(table.intern("SFO")));
+		assertFalse(table.intern("SEA").equals(new Vertex("SFO")));
+
+		// label bytes read straight from the table must match the encoded Strings
+		MyGraph loaded = GraphLoader.readMyGraph(TEST_VERTICES, TEST_EDGES);
+		assertEquals(LandmarkIndex.fingerprint(g.index()), LandmarkIndex.fingerprint(loaded.index()));
+		File f = File.createTempFile("graph", ".snapshot");
+		try {
+			loaded.saveSnapshot(f);
+			assertEquals(new HashSet<Vertex>(g.vertices()), new HashSet<Vertex>(MyGraph.openSnapshot(f).vertices()));
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void F2_testSnapshotRoundTrip() throws Exception {
+		File f = File.createTempFile("graph", ".snapshot");
+		try {
+			g.saveSnapshot(f);
+			MyGraph opened = MyGraph.openSnapshot(f);
+			assertEquals(new HashSet<Vertex>(g.vertices()), new HashSet<Vertex>(opened.vertices()));
+			assertEquals(new HashSet<Edge>(g.edges()), new HashSet<Edge>(opened.edges()));
+			for (Vertex a : g.vertices())
+				for (Vertex b : g.vertices()) {
+					Path expected = g.shortestPath(a, b);
+					Path result = opened.shortestPath(a, b);
+					assertEquals(expected == null, result == null);
+					if (expected != null)
+						assertEquals(expected.cost, result.cost);
+				}
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void F2b_testSnapshotRejectsWrongKindAndBadRows() throws Exception {
+		File f = File.createTempFile("graph", ".snapshot");
+		try {
+			g.saveSnapshot(f);
+			try {
+				MSTGraph.openSnapshot(f);
+				fail("opened a directed snapshot as an MSTGraph");
+			} catch (IOException e) {
+			}
+			Vertex[] v = { new Vertex("A"), new Vertex("B"), new Vertex("C") };
+			int[][][] bad = {
+				{ { 0, 2, 1, 2 }, { 1, 2 }, { 1, 1 } },
+				{ { 0, 1, 1, 1 }, { 3 }, { 1 } },
+				{ { 0, 2, 2, 2 }, { 2, 1 }, { 1, 1 } },
+				{ { 0, 1, 1, 1 }, { 1 }, { -1 } } };
+			for (int[][] rows : bad) {
+				GraphSnapshot.write(new CompactGraph(v, rows[0], rows[1], rows[2]), true, f);
+				try {
+					GraphSnapshot.read(f, true);
+					fail("accepted bad rows " + Arrays.deepToString(rows));
+				} catch (IOException e) {
+				}
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void F3_testDynamicTreeFollowsEdgeChanges() {
+		Vertex sea = new Vertex("SEA");
+		DynamicShortestPaths tree = g.registerSource(sea);
+		Set<Vertex> source = Collections.singleton(sea);
+		List<Edge> edges = new ArrayList<Edge>(g.edges());
+		for (Edge e : edges) {
+			g.updateWeight(e.getSource(), e.getDestination(), e.getWeight() + 7);
+			assertMatchesDijkstra(g, source, (a, b) -> tree.pathTo(b));
+			g.removeEdge(e.getSource(), e.getDestination());
+			assertMatchesDijkstra(g, source, (a, b) -> tree.pathTo(b));
+			g.addEdge(e);
+			assertMatchesDijkstra(g, source, (a, b) -> tree.pathTo(b));
+		}
+	}
+
+	@Test
+	public void F3b_testQueriesFollowEdgeChangesOnTheirEngine() {
+		g.setQueueType(QueueType.BUCKET);
+		Set<Vertex> sea = Collections.singleton(new Vertex("SEA"));
+		assertMatchesDijkstra(g, sea, g::shortestPath);
+		List<Edge> edges = new ArrayList<Edge>(g.edges());
+		for (int i = 0; i < edges.size(); i += 3) {
+			Edge e = edges.get(i);
+			// a weight past the largest so far has to outgrow the bucket queue
+			g.updateWeight(e.getSource(), e.getDestination(), 20000 + i);
+			if (i % 2 == 0)
+				g.removeEdge(e.getSource(), e.getDestination());
+			MyGraph fresh = new MyGraph(g.vertices(), g.edges());
+			fresh.setQueueType(QueueType.BINARY_HEAP);
+			assertMatchesDijkstra(fresh, sea, g::shortestPath);
+		}
+	}
+
+	@Test
+	public void F4_testPinnedSnapshotIgnoresLaterUpdates() {
+		ConcurrentGraph c = new ConcurrentGraph(g.vertices(), g.edges());
+		ConcurrentGraph.Snapshot pinned = c.snapshot();
+		for (Edge e : g.edges())
+			c.removeEdge(e.getSource(), e.getDestination());
+		assertEquals(0, c.snapshot().edgeCount());
+		assertEquals(g.edges().size(), pinned.edgeCount());
+		assertMatchesDijkstra(g, pinned::shortestPath);
+	}
+
+	@Test
+	public void F5_testPathCacheHitsAndInvalidation() {
+		PathCache cache = new PathCache(100, 1000, 0);
+		g.setPathCache(cache);
+		Vertex sea = new Vertex("SEA");
+		Vertex sfo = new Vertex("SFO");
+		Path first = g.shortestPath(sea, sfo);
+		assertSame(first, g.shortestPath(sea, sfo));
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+
+		Vertex next = first.vertices.get(1);
+		g.updateWeight(sea, next, g.edgeCost(sea, next) + 1);
+		Path changed = g.shortestPath(sea, sfo);
+		assertEquals(1, cache.invalidationCount());
+		assertEquals(new MyGraph(g.vertices(), g.edges()).shortestPath(sea, sfo).cost, changed.cost);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void F6_testPathIsImmutable() {
+		g.shortestPath(new Vertex("SEA"), new Vertex("SFO")).vertices.clear();
+	}
+
+	@Test
+	public void F7_testBatchMatchesSingleQueries() {
+		assertMatchesDijkstra(g, batchQuery(g));
+	}
+
+	@Test
+	public void F8_testPathServerProtocolAndBackpressure() throws Exception {
+		PathServer server = new PathServer(g, null, 0, 1);
+		Thread serving = new Thread(() -> {
+			try {
+				server.serve();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		serving.start();
+		try (Socket first = new Socket(InetAddress.getLoopbackAddress(), server.port());
+				Socket second = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+			BufferedReader in = reader(first);
+			PrintWriter out = new PrintWriter(first.getOutputStream(), true);
+			out.println("SEA SFO");
+			String[] ok = in.readLine().split(" ");
+			assertEquals("OK", ok[0]);
+			assertEquals("79", ok[1]);
+			assertEquals(Arrays.asList("SEA", "JFK", "SFO"), Arrays.asList(ok).subList(3, ok.length));
+			out.println("A SEA");
+			assertTrue(in.readLine().startsWith("NONE "));
+			out.println("SEA NOPE");
+			assertEquals("ERROR no such vertex", in.readLine());
+			out.println("SEA");
+			assertTrue(in.readLine().startsWith("ERROR "));
+			out.println("STATS");
+			assertTrue(in.readLine().startsWith("STATS requests=2 "));
+			assertEquals(2, server.requestCount());
+
+			// the only permit is taken, so the second client waits in the backlog
+			BufferedReader waiting = reader(second);
+			new PrintWriter(second.getOutputStream(), true).println("SEA SFO");
+			second.setSoTimeout(300);
+			try {
+				waiting.readLine();
+				fail("served a second connection beyond maxConnections");
+			} catch (SocketTimeoutException e) {
+			}
+			out.println("QUIT");
+			assertNull(in.readLine());
+			second.setSoTimeout(5000);
+			assertTrue(waiting.readLine().startsWith("OK 79 "));
+
+			// closing must end serve even while a connection holds the only permit
+			server.close();
+			serving.join(5000);
+			assertFalse(serving.isAlive());
+			assertNull(waiting.readLine());
+		} finally {
+			server.close();
+		}
+	}
+
+	private static BufferedReader reader(Socket s) throws IOException {
+		return new BufferedReader(new InputStreamReader(s.getInputStream(), "UTF-8"));
+	}
+
+	@Test
+	public void G1_testBoruvkaMatchesKruskal() {
+		MSTGraph m = new MSTGraph(g.vertices(), g.edges());
+		Set<Edge> kruskal = m.kruskalMST();
+		assertEquals(kruskal, m.boruvkaMST());
+		// a spanning forest has one edge fewer than vertices per component
+		assertTrue(kruskal.size() < m.vertices().size());
+	}
+
+	@Test
+	public void G2_testConcurrentUnionFindMatchesArray() {
+		Random r = new Random(22);
+		int n = 1000;
+		int[] a = new int[20000];
+		int[] b = new int[a.length];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = r.nextInt(n);
+			b[i] = r.nextInt(n);
+		}
+		UnionFind expected = new ArrayUnionFind(n);
+		UnionFind result = new ConcurrentUnionFind(n);
+		assertEquals(expected.unionAll(a, b), result.unionAll(a, b));
+		assertEquals(expected.count(), result.count());
+		int[] roots = result.components();
+		for (int i = 0; i < a.length; i++)
+			assertEquals(expected.connected(a[i], i % n), roots[a[i]] == roots[i % n]);
+	}
+
+	@Test
+	public void G3_testPrimMatchesKruskal() {
+		// distinct weights, and two vertices left out to make a forest
+		Random r = new Random(23);
+		List<Vertex> vertices = new ArrayList<>();
+		for (int i = 0; i < 60; i++)
+			vertices.add(new Vertex("V" + i));
+		List<Edge> edges = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			edges.add(new Edge(vertices.get(r.nextInt(58)), vertices.get(r.nextInt(58)), i));
+		MSTGraph m = new MSTGraph(vertices, edges);
+		Set<Edge> kruskal = m.kruskalMST();
+		assertEquals(kruskal, m.primMST());
+		assertEquals(kruskal, m.minimumSpanningTree());
+	}
+
+	@Test
+	public void G4_testSpanningTreeFollowsEdgeChanges() {
+		MSTGraph m = new MSTGraph(g.vertices(), g.edges());
+		DynamicMinimumSpanningTree tree = m.spanningTree();
+		List<Vertex> v = new ArrayList<>(m.vertices());
+		Random r = new Random(24);
+		for (int i = 0; i < 200; i++) {
+			Vertex a = v.get(r.nextInt(v.size()));
+			Vertex b = v.get(r.nextInt(v.size()));
+			if (i % 3 == 0)
+				m.removeEdge(a, b);
+			else if (m.edgeCost(a, b) == -1 && m.edgeCost(b, a) == -1)
+				m.addEdge(new Edge(a, b, r.nextInt(5000)));
+			else
+				m.updateWeight(a, b, r.nextInt(5000));
+			long cost = 0;
+			for (Edge e : m.kruskalMST())
+				cost += e.getWeight();
+			assertEquals(cost, tree.weight());
+			assertEquals(m.kruskalMST().size(), tree.edges().size());
+		}
+	}
+
+	@Test
+	public void G5_testUndirectedCoreStoresPairOnce() {
+		Vertex a = new Vertex("A");
+		Vertex b = new Vertex("B");
+		MSTGraph m = new MSTGraph(Arrays.asList(a, b), Arrays.asList(new Edge(a, b, 3), new Edge(b, a, 5)));
+		assertEquals(1, m.edges().size());
+		assertEquals(3, m.edgeCost(a, b));
+		assertEquals(-1, m.edgeCost(b, a));
+		assertEquals(1, m.kruskalMST().size());
+	}
+
+	@Test
+	public void G6_testEdgeViewsFailFastOnChange() {
+		Vertex sea = new Vertex("SEA");
+		Edge first = g.edges().iterator().next();
+		Iterator<Edge> edges = g.edges().iterator();
+		edges.next();
+		g.updateWeight(first.getSource(), first.getDestination(), first.getWeight() + 1);
+		try {
+			edges.next();
+			fail("edge iterator ignored a change");
+		} catch (ConcurrentModificationException e) {
+		}
+		Iterator<Vertex> adjacent = g.adjacentVertices(sea).iterator();
+		Vertex next = adjacent.next();
+		int weight = g.removeEdge(sea, next);
+		try {
+			adjacent.next();
+			fail("adjacency iterator ignored a change");
+		} catch (ConcurrentModificationException e) {
+		}
+		// the vertices never change, so their iterator outlives edge changes
+		Iterator<Vertex> vertices = g.vertices().iterator();
+		g.addEdge(new Edge(sea, next, weight));
+		assertTrue(vertices.hasNext());
+		vertices.next();
+	}
+
+	// every path q finds from the sources must be a real path from a to b costing what
+	// dijkstra on g finds, and null exactly where dijkstra finds none
+	private static void assertMatchesDijkstra(MyGraph g, BiFunction<Vertex, Vertex, Path> q) {
+		assertMatchesDijkstra(g, g.vertices(), q);
+	}
+
+	private static void assertMatchesDijkstra(MyGraph g, Collection<Vertex> sources, BiFunction<Vertex, Vertex, Path> q) {
+		for (Vertex a : sources) {
+			for (Vertex b : g.vertices()) {
+				Path expected = g.shortestPath(a, b);
+				Path result = q.apply(a, b);
+				if (expected == null) {
+					assertNull(a + " to " + b, result);
+					continue;
+				}
+				assertNotNull(a + " to " + b, result);
+				assertEquals(a + " to " + b, expected.cost, result.cost);
+				if (a.equals(b))
+					assertEquals(Collections.singletonList(a), result.vertices);
+				assertEquals(a, result.vertices.get(0));
+				assertEquals(b, result.vertices.get(result.vertices.size() - 1));
+				int cost = 0;
+				for (int i = 1; i < result.vertices.size(); i++) {
+					int w = g.edgeCost(result.vertices.get(i - 1), result.vertices.get(i));
+					assertTrue(a + " to " + b + " uses a missing edge", w >= 0);
+					cost += w;
+				}
+				assertEquals(a + " to " + b, result.cost, cost);
+			}
+		}
+	}
+
+	// paths read from one shortest path tree per source, checking its distances on the way
+	private static BiFunction<Vertex, Vertex, Path> treeQuery(MyGraph g) {
+		Map<Vertex, ShortestPathTree> trees = new HashMap<Vertex, ShortestPathTree>();
+		return (a, b) -> {
+			ShortestPathTree tree = trees.computeIfAbsent(a, g::shortestPathTree);
+			Path p = tree.pathTo(b);
+			assertEquals(p == null ? -1 : p.cost, tree.distanceTo(b));
+			return p;
+		};
+	}
+
+	// paths from one batch of every pair, handed out in the order the helper asks for them
+	private static BiFunction<Vertex, Vertex, Path> batchQuery(MyGraph g) {
+		List<PathQuery> queries = new ArrayList<PathQuery>();
+		for (Vertex a : g.vertices())
+			for (Vertex b : g.vertices())
+				queries.add(new PathQuery(a, b));
+		List<Path> results = g.batchShortestPaths(queries);
+		assertEquals(queries.size(), results.size());
+		Iterator<Path> next = results.iterator();
+		return (a, b) -> next.next();
+	}
+
+	/*
+	 * A graph of the cases searches get wrong: S reaches C at cost 2 two ways
+	 * and T at cost 5 two ways, A and B form a zero weight cycle, T leads back
+	 * to S for free, nothing reaches U and Z has no edges at all.
+	 *
+	 *   U --1--> S --0--> A <--0--> B
+	 *            |        |         |
+	 *            2        2         1
+	 *            v        v         v
+	 *            C <------'         D
+	 *            |                  |
+	 *            3                  4
+	 *            v                  |
+	 *            T <----------------'     and T --0--> S
+	 */
+	private static MyGraph edgeCaseGraph() {
+		Map<String, Vertex> v = new LinkedHashMap<String, Vertex>();
+		for (String label : new String[] { "S", "A", "B", "C", "D", "T", "U", "Z" })
+			v.put(label, new Vertex(label));
+		List<Edge> e = new ArrayList<Edge>();
+		String[] edges = { "S A 0", "A B 0", "B A 0", "S C 2", "A C 2", "C T 3", "B D 1", "D T 4", "T S 0", "U S 1" };
+		for (String edge : edges) {
+			String[] parts = edge.split(" ");
+			e.add(new Edge(v.get(parts[0]), v.get(parts[1]), Integer.parseInt(parts[2])));
+		}
+		return new MyGraph(v.values(), e);
+	}
+
+	/**
+	 * Create a seeded random graph with n vertices and m edges, no two
+	 * of them between the same pair of vertices
+	 */
+	public static MyGraph randomGraph(long seed, int n, int m, int maxWeight) {
+		Random r = new Random(seed);
+		List<Vertex> v = new ArrayList<Vertex>();
+		for (int i = 0; i < n; i++)
+			v.add(new Vertex("R" + i));
+		Set<Long> pairs = new HashSet<Long>();
+		List<Edge> e = new ArrayList<Edge>();
+		while (e.size() < m) {
+			int a = r.nextInt(n);
+			int b = r.nextInt(n);
+			if (pairs.add((long) a * n + b))
+				e.add(new Edge(v.get(a), v.get(b), r.nextInt(maxWeight + 1)));
+		}
+		return new MyGraph(v, e);
+	}
+
 	/**
 	 * Create and return the graph from given input files
 	 * 